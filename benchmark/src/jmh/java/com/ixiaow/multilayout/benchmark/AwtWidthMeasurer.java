@@ -0,0 +1,23 @@
+package com.ixiaow.multilayout.benchmark;
+
+import com.ixiaow.multilayout.RowPacker;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+
+/**
+ * 在JVM上使用AWT测量文字宽度，代替Android中的Paint#measureText
+ */
+final class AwtWidthMeasurer implements RowPacker.WidthMeasurer {
+
+    //14sp在xxhdpi(density = 3)下的像素大小
+    private static final float TEXT_SIZE = 42f;
+
+    private final Font mFont = new Font(Font.SANS_SERIF, Font.PLAIN, 1).deriveFont(TEXT_SIZE);
+    private final FontRenderContext mRenderContext = new FontRenderContext(null, true, true);
+
+    @Override
+    public float measure(int index, CharSequence text) {
+        return (float) mFont.getStringBounds(text.toString(), mRenderContext).getWidth();
+    }
+}
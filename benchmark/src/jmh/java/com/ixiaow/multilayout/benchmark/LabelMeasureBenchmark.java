@@ -0,0 +1,43 @@
+package com.ixiaow.multilayout.benchmark;
+
+import com.ixiaow.multilayout.RowPacker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 测量所有tab名称宽度的耗时
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LabelMeasureBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int tabCount;
+
+    private List<String> mTitles;
+    private RowPacker.WidthMeasurer mMeasurer;
+    private float[] mWidths;
+
+    @Setup
+    public void setup() {
+        mTitles = TabTitles.create(tabCount);
+        mMeasurer = new AwtWidthMeasurer();
+        mWidths = new float[tabCount];
+    }
+
+    @Benchmark
+    public float[] measure() {
+        return RowPacker.measure(mTitles, 0, mMeasurer, mWidths);
+    }
+}
@@ -0,0 +1,53 @@
+package com.ixiaow.multilayout.benchmark;
+
+import com.ixiaow.multilayout.RowPacker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * tab换行计算的耗时
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RowPackerBenchmark {
+
+    //1080px宽的屏幕
+    static final float CONTAINER_WIDTH = 1080f;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int tabCount;
+
+    private float[] mWidths;
+    private RowPacker mRowPacker;
+    private RowPacker mBalancedRowPacker;
+
+    @Setup
+    public void setup() {
+        mWidths = RowPacker.measure(TabTitles.create(tabCount), 0, new AwtWidthMeasurer(), null);
+        mRowPacker = new RowPacker();
+        mBalancedRowPacker = new RowPacker();
+        mBalancedRowPacker.setStrategy(RowPacker.STRATEGY_BALANCED);
+    }
+
+    @Benchmark
+    public int pack() {
+        mRowPacker.pack(mWidths, tabCount, CONTAINER_WIDTH, 0);
+        return mRowPacker.getRowCount();
+    }
+
+    @Benchmark
+    public int packBalanced() {
+        mBalancedRowPacker.pack(mWidths, tabCount, CONTAINER_WIDTH, 0);
+        return mBalancedRowPacker.getRowCount();
+    }
+}
@@ -0,0 +1,37 @@
+package com.ixiaow.multilayout.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * benchmark使用的tab名称，中英文混合，与sample中TwoFragment的TAB_NAMES类似
+ */
+final class TabTitles {
+
+    private static final String[] TAB_NAMES = {
+            "全部", "赛事", "原创", "少年", "少女", "日漫",
+            "杂志", "热血", "搞笑", "治愈", "惊秫", "古风",
+            "全部全部", "赛事2", "原创1", "少年2", "少女1", "日漫2",
+            "杂志eeee3", "热血2", "搞笑1", "治愈2", "惊秫2", "古风2",
+            "News", "Anime", "Manga", "Cosplay", "Game", "eSports"
+    };
+
+    private TabTitles() {
+    }
+
+    /**
+     * 创建tab名称集合，超出基础名称个数时在名称后面加上序号
+     *
+     * @param count tab的个数
+     * @return tab名称集合
+     */
+    static List<String> create(int count) {
+        List<String> titles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int round = i / TAB_NAMES.length;
+            String name = TAB_NAMES[i % TAB_NAMES.length];
+            titles.add(round == 0 ? name : name + round);
+        }
+        return titles;
+    }
+}
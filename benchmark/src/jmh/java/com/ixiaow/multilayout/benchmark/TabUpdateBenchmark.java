@@ -0,0 +1,79 @@
+package com.ixiaow.multilayout.benchmark;
+
+import com.ixiaow.multilayout.RowPacker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 修改中间一个tab的名称后，全部重新计算与只从变化的位置开始计算的耗时对比，
+ * 与MultiLayout#updateTabs和MultiLayout#updateTabsIncrementally中的计算步骤一致
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TabUpdateBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int tabCount;
+
+    private List<String> mTitles;
+    private List<String> mChangedTitles;
+    //每次调用在两组名称之间切换
+    private boolean mChanged;
+    private RowPacker.WidthMeasurer mMeasurer;
+    private float[] mWidths;
+    private RowPacker mRowPacker;
+
+    @Setup
+    public void setup() {
+        mTitles = TabTitles.create(tabCount);
+        mChangedTitles = new ArrayList<>(mTitles);
+        int middle = tabCount / 2;
+        mChangedTitles.set(middle, mTitles.get(middle) + "(99+)");
+        mMeasurer = new AwtWidthMeasurer();
+        mRowPacker = new RowPacker();
+        mWidths = RowPacker.measure(mTitles, 0, mMeasurer, null);
+        mRowPacker.pack(mWidths, tabCount, RowPackerBenchmark.CONTAINER_WIDTH, 0);
+    }
+
+    @Benchmark
+    public int fullRebuild() {
+        List<String> titles = nextTitles();
+        mWidths = RowPacker.measure(titles, 0, mMeasurer, mWidths);
+        mRowPacker.pack(mWidths, tabCount, RowPackerBenchmark.CONTAINER_WIDTH, 0);
+        return mRowPacker.getRowCount();
+    }
+
+    @Benchmark
+    public int incrementalUpdate() {
+        List<String> oldTitles = mChanged ? mTitles : mChangedTitles;
+        List<String> titles = nextTitles();
+        //找出第一个发生变化的位置
+        int first = 0;
+        while (first < tabCount && titles.get(first).equals(oldTitles.get(first))) {
+            first++;
+        }
+        if (first == tabCount) {
+            return mRowPacker.getRowCount();
+        }
+        mWidths = RowPacker.measure(titles, first, mMeasurer, mWidths);
+        mRowPacker.pack(mWidths, tabCount, RowPackerBenchmark.CONTAINER_WIDTH, 0, mRowPacker.findRepackRow(first));
+        return mRowPacker.getRowCount();
+    }
+
+    private List<String> nextTitles() {
+        mChanged = !mChanged;
+        return mChanged ? mChangedTitles : mTitles;
+    }
+}
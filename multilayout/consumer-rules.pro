@@ -0,0 +1,4 @@
+# MultiLayout的调试日志只用于开发阶段，开启混淆时移除所有调用以及调用处的字符串拼接
+-assumenosideeffects class com.ixiaow.multilayout.MultiLayoutLog {
+    static void d(...);
+}
@@ -0,0 +1,59 @@
+package com.ixiaow.multilayout;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+
+/**
+ * 按需获取的tab名称集合，第一次获取某个tab的名称时才从{@link TabTitleProvider}中获取并缓存，
+ * 还没有加载完成的名称返回占位文字
+ */
+final class LazyTabTitles extends AbstractList<CharSequence> {
+
+    //tab名称提供者
+    private final TabTitleProvider mProvider;
+    //tab的个数
+    private final int mCount;
+    //已经获取到的名称
+    private final CharSequence[] mTitles;
+    //名称还没有加载完成时显示的占位文字
+    private final CharSequence mPlaceholder;
+
+    LazyTabTitles(TabTitleProvider provider, CharSequence placeholder) {
+        mProvider = provider;
+        mCount = provider.getTabCount();
+        mTitles = new CharSequence[mCount];
+        mPlaceholder = placeholder;
+    }
+
+    @Override
+    public CharSequence get(int index) {
+        CharSequence title = mTitles[index];
+        if (title == null) {
+            title = mProvider.getTabTitle(index);
+            if (title == null) {
+                return mPlaceholder;
+            }
+            mTitles[index] = title;
+        }
+        return title;
+    }
+
+    @Override
+    public int size() {
+        return mCount;
+    }
+
+    /**
+     * 清除缓存的名称，下次获取时重新从{@link TabTitleProvider}中获取
+     *
+     * @param start 第一个tab的下标
+     * @param end   最后一个tab的下一个下标
+     */
+    void invalidate(int start, int end) {
+        Arrays.fill(mTitles, Math.max(start, 0), Math.min(end, mCount), null);
+    }
+
+    TabTitleProvider getProvider() {
+        return mProvider;
+    }
+}
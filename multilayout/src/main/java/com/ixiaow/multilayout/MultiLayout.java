@@ -1,5 +1,8 @@
 package com.ixiaow.multilayout;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ValueAnimator;
 import android.content.Context;
 import android.content.res.ColorStateList;
 import android.content.res.TypedArray;
@@ -7,26 +10,50 @@ import android.database.DataSetObserver;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
 import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
 import android.os.Build;
+import android.os.Bundle;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.support.annotation.RequiresApi;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.os.TraceCompat;
+import android.support.v4.text.PrecomputedTextCompat;
 import android.support.v4.view.PagerAdapter;
+import android.support.v4.view.ViewCompat;
 import android.support.v4.view.ViewPager;
+import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
+import android.support.v4.widget.ExploreByTouchHelper;
+import android.support.v4.widget.TextViewCompat;
 import android.text.TextUtils;
 import android.util.AttributeSet;
-import android.util.Log;
+import android.util.DisplayMetrics;
+import android.util.SparseIntArray;
 import android.view.Gravity;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
 import android.view.View;
-import android.view.ViewGroup;
 import android.view.ViewTreeObserver;
+import android.view.accessibility.AccessibilityEvent;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * 编写人： xw
@@ -36,21 +63,81 @@ import java.util.List;
 public class MultiLayout extends LinearLayout implements View.OnClickListener,
         ViewPager.OnAdapterChangeListener, ViewPager.OnPageChangeListener {
 
-    private static final String TAG = "MultiLayout";
+    /**
+     * 性能数据：重新创建所有的tab
+     */
+    public static final int METRICS_UPDATE_TABS = 0;
+    /**
+     * 性能数据：测量
+     */
+    public static final int METRICS_MEASURE = 1;
+    /**
+     * 性能数据：布局
+     */
+    public static final int METRICS_LAYOUT = 2;
+    /**
+     * 性能数据：绘制
+     */
+    public static final int METRICS_DRAW = 3;
+    /**
+     * 性能数据：选中tab
+     */
+    public static final int METRICS_SELECT = 4;
+    /**
+     * 性能数据：空闲时分批创建屏幕外的tab
+     */
+    public static final int METRICS_PROGRESSIVE_BUILD = 5;
+
+    /**
+     * 每个tab都创建一个TextView
+     */
+    public static final int RENDER_MODE_VIEW = 0;
+    /**
+     * 所有tab的文字直接绘制在当前控件的画布上，不创建TextView
+     */
+    public static final int RENDER_MODE_CANVAS = 1;
+
+    /**
+     * 依次放置tab，当前行放不下时换行
+     */
+    public static final int ROW_PACKING_GREEDY = RowPacker.STRATEGY_GREEDY;
+    /**
+     * 行数不变，让每一行剩余的宽度尽量平均
+     */
+    public static final int ROW_PACKING_BALANCED = RowPacker.STRATEGY_BALANCED;
+
+    /**
+     * 所有tab的宽度都是tab_text_width
+     */
+    public static final int TAB_WIDTH_FIXED = 0;
+    /**
+     * tab的宽度为文字宽度加上左右的padding，限制在tab_min_width和tab_max_width之间
+     */
+    public static final int TAB_WIDTH_WRAP_CONTENT = 1;
 
     private Context mContext;//上下文
 
     //当前控件的宽度
     private int mMultiLayoutWidth;
     //tab名称集合
-    private List<String> mTabNames;
+    private List<CharSequence> mTabNames;
     //tabText集合
     private List<TextView> mTabTextList;
+    //tab的个数
+    private int mTabCount;
+    //每个tab的宽度
+    private float[] mTabWidths;
+    //tab的宽度测量器
+    private RowPacker.WidthMeasurer mTabWidthMeasurer;
+    //tab的换行计算
+    private RowPacker mRowPacker = new RowPacker();
+    //每个tab所在的行
+    private int[] mTabRows = new int[0];
+    //每个tab在所在行中的列
+    private int[] mTabColumns = new int[0];
 
     //indicator 画笔
     private Paint mIndicatorPaint;
-    //indicator的相对于当前选中tabText的距离，由于后面多次参与计算，所以将值保留
-    private float mIndicatorMargin;
     //indicator区域设置
     private RectF mIndicatorRectF;
     //indicator圆角弧度
@@ -59,21 +146,86 @@ public class MultiLayout extends LinearLayout implements View.OnClickListener,
     private float mIndicatorTranslateX;
     //切换Tab时，indicator y轴移动的距离
     private float mIndicatorTranslateY;
+    //indicator移动时需要重绘的区域
+    private final Rect mIndicatorDirtyRect = new Rect();
+    //indicator移动后所在的区域
+    private final Rect mIndicatorBounds = new Rect();
+    //ViewPager的滑动状态
+    private int mPageScrollState = ViewPager.SCROLL_STATE_IDLE;
 
     //布局测量记录值，只执行一次标志
     private boolean isOnce = false;
 
-    //记录当前的tab
-    private TextView mCurrentTabText;
+    //记录当前选中的tab的下标
+    private int mSelectedIndex = -1;
+    //记录当前选中的tab的id，使用TabModel时有效
+    private long mSelectedId = TabModel.NO_ID;
+    //tab数据，为null时只使用mTabNames
+    private TabModel mTabModel;
+    //tab数据变化时只更新受影响的tab
+    private final TabModel.Observer mTabModelObserver = new TabModel.Observer() {
+        @Override
+        public void onTabsChanged(int position, int removedCount, int insertedCount) {
+            applyTabModelChange(position, removedCount, insertedCount);
+        }
+    };
+    //tabText绑定数据的监听
+    private OnTabBindListener mOnTabBindListener;
+    //性能数据的监听，为null时不统计
+    private OnMetricsListener mOnMetricsListener;
+    //创建的tabText个数
+    private int mCreatedViewCount;
+    //放入复用池的tabText个数
+    private int mRecycledViewCount;
+    //等待选中的tab下标，tab还没有布局时布局完成后再选中
+    private int mPendingSelectedIndex = -1;
+    //等待选中时是否使用动画
+    private boolean mPendingSelectAnimate;
+    //是否已经在下一帧中安排了选中
+    private boolean mSelectionScheduled;
+    //布局完成后重新选中的是否还是原来的tab，是时不回调OnTabSelectListener
+    private boolean mSilentSelection;
+    //同一帧中多次设置选中时只在下一帧选中最后一次设置的tab
+    private final Runnable mApplySelectionRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mSelectionScheduled = false;
+            applyPendingSelection();
+        }
+    };
+    //indicator动画
+    private ValueAnimator mIndicatorAnimator;
+    //indicator动画开始时的位置
+    private float mIndicatorStartX;
+    private float mIndicatorStartY;
+    //indicator动画结束时的位置
+    private float mIndicatorEndX;
+    private float mIndicatorEndY;
     //与viewPager关联
     private ViewPager mViewPager;
 
-    //tabText的宽度
+    //tabText的宽度，TAB_WIDTH_WRAP_CONTENT模式下为按需获取名称时的宽度
     private float mTabWidth;
+    //tab宽度的计算方式
+    private int mTabWidthMode = TAB_WIDTH_FIXED;
+    //TAB_WIDTH_WRAP_CONTENT模式下tab的最小宽度
+    private float mTabMinWidth;
+    //TAB_WIDTH_WRAP_CONTENT模式下tab的最大宽度，超出时末尾显示省略号
+    private float mTabMaxWidth;
+    //TAB_WIDTH_WRAP_CONTENT模式下文字左右的padding
+    private float mTabHorizontalPadding;
+    //TabModel中的图标与文字之间的间隔
+    private int mTabIconPadding;
+    //TabModel中的图标资源对应的宽度，wrap_content模式下计算tab的宽度时使用
+    private final SparseIntArray mTabIconWidths = new SparseIntArray();
+    //每个tab左边到所在行第一个tab左边的tab宽度之和，不包括间隔
+    private float[] mTabOffsets = new float[0];
     //tabText的高度
     private float mTabHeight;
     //最小的tabMargin
     private float mTabMinMargin;
+    //是否每一行使用自己的tabMargin，使每一行都占满宽度
+    private boolean mJustifyRows;
     //tabText的文字大小
     private float mTabTextSize;
 
@@ -82,8 +234,90 @@ public class MultiLayout extends LinearLayout implements View.OnClickListener,
 
     //ViewPager数据变化监听
     private MultiLayoutDataSetObserver mDataSetObserver;
+    //是否按需获取ViewPager adapter中的pageTitle
+    private boolean mLazyAdapterTitles;
+    //按需获取tab名称时，名称还没有加载完成时显示的占位文字
+    private CharSequence mTabTitlePlaceholder;
     private ColorStateList mTabTextColor;
 
+    //tab的渲染方式
+    private int mRenderMode = RENDER_MODE_VIEW;
+    //canvas模式下tab文字的绘制
+    private TabTextRenderer mTabTextRenderer;
+    //canvas模式下是否缓存tab文字的绘制结果
+    private boolean mTabGridCacheEnabled;
+    //canvas模式下按下时的tab下标
+    private int mTouchDownIndex = -1;
+    //canvas模式下为每个tab提供无障碍虚拟节点
+    private TabAccessibilityHelper mAccessibilityHelper;
+    //canvas模式下用于获取可见区域
+    private final Rect mClipRect = new Rect();
+
+    //tabText复用池
+    private final TabViewPool mTabViewPool = new TabViewPool(TabViewPool.DEFAULT_MAX_SIZE);
+    //tab文字宽度缓存，文字大小相同的MultiLayout共用
+    private TextWidthCache mTextWidthCache;
+    //导入的排版快照，key一致时创建tab不再测量和换行
+    private TabLayoutSnapshot mLayoutSnapshot;
+
+    //可见区域之外额外创建tabText的行数
+    private static final int VIRTUALIZED_EXTRA_ROWS = 1;
+    //是否只为可见区域中的行创建tabText
+    private boolean mVirtualized;
+    //空闲时每一批创建tabText的最长耗时，超出后等下一次空闲再继续，单位纳秒
+    private static final long PROGRESSIVE_BUILD_BUDGET_NANOS = 4000000L;
+    //是否先只创建首屏可见的行，其余的行在主线程空闲时分批创建
+    private boolean mProgressiveBuild;
+    //是否已经添加了空闲时创建tabText的IdleHandler
+    private boolean mProgressiveBuildScheduled;
+    //主线程空闲时分批创建剩余的行
+    private final MessageQueue.IdleHandler mProgressiveBuildHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            boolean hasPendingRows = bindPendingRows();
+            mProgressiveBuildScheduled = hasPendingRows;
+            //返回true时保留IdleHandler，下一次空闲时继续创建
+            return hasPendingRows;
+        }
+    };
+    //收起时最多显示的行数，0表示不限制
+    private int mMaxVisibleRows;
+    //超出最多显示的行数时是否展开
+    private boolean mExpanded;
+    //展开/收起按钮区域的高度
+    private float mExpandAreaHeight;
+    //展开/收起按钮的画笔
+    private Paint mExpandPaint;
+    //展开/收起按钮的箭头
+    private final Path mExpandArrowPath = new Path();
+    //是否按下了展开/收起按钮
+    private boolean mExpandAreaPressed;
+    //展开/收起时的高度动画
+    private ValueAnimator mExpandAnimator;
+    //动画过程中的高度，没有动画时为-1
+    private int mAnimatedHeight = -1;
+    //已经创建了tabText的第一行
+    private int mBoundFirstRow;
+    //已经创建了tabText的最后一行
+    private int mBoundLastRow = -1;
+    //当前控件的可见区域
+    private final Rect mVisibleRect = new Rect();
+    //tab更新的次数，用于丢弃过期的后台计算结果
+    private int mUpdateGeneration;
+    //后台计算使用的线程
+    private Executor mBackgroundExecutor;
+    //tabText的文字排版参数
+    private PrecomputedTextCompat.Params mTextMetricsParams;
+
+    //父控件滚动时更新可见区域中的tabText
+    private final ViewTreeObserver.OnScrollChangedListener mOnScrollChangedListener =
+            new ViewTreeObserver.OnScrollChangedListener() {
+                @Override
+                public void onScrollChanged() {
+                    bindVisibleRows();
+                }
+            };
+
 
     /**
      * 设置Tab选择监听事件
@@ -106,6 +340,8 @@ public class MultiLayout extends LinearLayout implements View.OnClickListener,
         super(context, attrs, defStyleAttr);
         init(context);
         initAttr(attrs);
+        applyTabGridCache();
+        applyAccessibilityHelper();
     }
 
     /**
@@ -117,7 +353,8 @@ public class MultiLayout extends LinearLayout implements View.OnClickListener,
         TypedArray typedArray = mContext.obtainStyledAttributes(attrs, R.styleable.MultiLayout);
         mTabTextSize = typedArray.getDimensionPixelSize(R.styleable.MultiLayout_tab_text_size,
                 getResources().getDimensionPixelSize(R.dimen.tab_text_size));
-        mTabTextSize = mTabTextSize / mContext.getResources().getDisplayMetrics().density;
+        DisplayMetrics displayMetrics = mContext.getResources().getDisplayMetrics();
+        mTabTextSize = mTabTextSize / displayMetrics.density;
         mTabWidth = typedArray.getDimensionPixelSize(R.styleable.MultiLayout_tab_text_width,
                 getResources().getDimensionPixelSize(R.dimen.tab_text_width));
         mTabHeight = typedArray.getDimensionPixelSize(R.styleable.MultiLayout_tab_text_height,
@@ -130,6 +367,28 @@ public class MultiLayout extends LinearLayout implements View.OnClickListener,
         tabTextUnSelectColor = typedArray.getColor(R.styleable.MultiLayout_tab_text_unselect_color, tabTextUnSelectColor);
 
         mTabTextColor = createTabTextColorStateList(tabTextSelectColor, tabTextUnSelectColor);
+        //与TextView#setTextSize(float)一致，按照sp计算文字大小
+        float tabTextSizePx = mTabTextSize * displayMetrics.scaledDensity;
+        mTextWidthCache = TextWidthCache.get(tabTextSizePx, null);
+        mTabTextRenderer = new TabTextRenderer(mTextWidthCache, tabTextSizePx,
+                tabTextSelectColor, tabTextUnSelectColor);
+        mTabTextRenderer.setTabHeight((int) mTabHeight);
+        mTabWidthMode = typedArray.getInt(R.styleable.MultiLayout_tab_width_mode, TAB_WIDTH_FIXED);
+        mTabMinWidth = typedArray.getDimension(R.styleable.MultiLayout_tab_min_width, 0);
+        mTabMaxWidth = typedArray.getDimension(R.styleable.MultiLayout_tab_max_width, Float.MAX_VALUE);
+        mTabIconPadding = getResources().getDimensionPixelSize(R.dimen.tab_icon_padding);
+        mTabHorizontalPadding = typedArray.getDimension(R.styleable.MultiLayout_tab_horizontal_padding,
+                getResources().getDimensionPixelSize(R.dimen.tab_horizontal_padding));
+        mRenderMode = typedArray.getInt(R.styleable.MultiLayout_tab_render_mode, RENDER_MODE_VIEW);
+        mVirtualized = typedArray.getBoolean(R.styleable.MultiLayout_tab_virtualized, false);
+        mTabGridCacheEnabled = typedArray.getBoolean(R.styleable.MultiLayout_tab_grid_cache, false);
+        mRowPacker.setStrategy(typedArray.getInt(R.styleable.MultiLayout_tab_row_packing, ROW_PACKING_GREEDY));
+        mJustifyRows = typedArray.getBoolean(R.styleable.MultiLayout_tab_justify_rows, false);
+        mMaxVisibleRows = typedArray.getInt(R.styleable.MultiLayout_tab_max_visible_rows, 0);
+        mProgressiveBuild = typedArray.getBoolean(R.styleable.MultiLayout_tab_progressive_build, false);
+        mExpandAreaHeight = typedArray.getDimension(R.styleable.MultiLayout_tab_expand_height,
+                getResources().getDimensionPixelSize(R.dimen.tab_expand_height));
+        initExpandPaint(tabTextUnSelectColor, displayMetrics.density);
 
         int indicatorColor = typedArray.getColor(R.styleable.MultiLayout_tab_indicator_color, Color.RED);
         float indicatorWidth = typedArray.getDimension(R.styleable.MultiLayout_tab_indicator_width,
@@ -178,8 +437,21 @@ public class MultiLayout extends LinearLayout implements View.OnClickListener,
         mIndicatorPaint.setAntiAlias(true);
         //填充
         mIndicatorPaint.setStyle(Paint.Style.FILL_AND_STROKE);
+    }
 
-        mIndicatorMargin = (mTabWidth - indicatorWidth) / 2;
+    /**
+     * 初始化展开/收起按钮的画笔
+     *
+     * @param color   箭头的颜色
+     * @param density 屏幕密度
+     */
+    private void initExpandPaint(int color, float density) {
+        mExpandPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mExpandPaint.setColor(color);
+        mExpandPaint.setStyle(Paint.Style.STROKE);
+        mExpandPaint.setStrokeWidth(1.5f * density);
+        mExpandPaint.setStrokeCap(Paint.Cap.ROUND);
+        mExpandPaint.setStrokeJoin(Paint.Join.ROUND);
     }
 
     /*
@@ -191,398 +463,2626 @@ public class MultiLayout extends LinearLayout implements View.OnClickListener,
         setOrientation(VERTICAL);
         //在ViewGroup中如果用到了onDraw(),则必须调用此方法
         setWillNotDraw(false);
+        mTabTitlePlaceholder = context.getString(R.string.tab_title_placeholder);
     }
 
     @Override
-    protected void onFinishInflate() {
-        super.onFinishInflate();
-        /*
-         * 注册一个全局布局监听器，用于监听布局处理完毕后的回调事件来更新tabs
-         * 本来更新tabs是可以在onMeasure或者onLayout中执行的，
-         * 但是经过测试发现在这两个方法中进行更新tabs，添加进去的tabs不显示，通过测试才利用了
-         * {@link getViewTreeObserver()#addOnGlobalLayoutListener}
-         */
-        ViewTreeObserver viewTreeObserver = this.getViewTreeObserver();
-        viewTreeObserver.addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
-            @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN) //最小版本16
-            @Override
-            public void onGlobalLayout() {
-                Log.d(TAG, "onGlobalLayout...");
-                //移除当前监听器，不然会进行多次监听
-                //获取当前控件的大小
-                mMultiLayoutWidth = getMeasuredWidth();
-                if (mMultiLayoutWidth != 0) {
-                    Log.d(TAG, "mMultiLayoutWidth: " + mMultiLayoutWidth);
-                    getViewTreeObserver().removeOnGlobalLayoutListener(this);
-                    updateTabs();
-                }
-            }
-        });
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getViewTreeObserver().addOnScrollChangedListener(mOnScrollChangedListener);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        getViewTreeObserver().removeOnScrollChangedListener(mOnScrollChangedListener);
+        if (mIndicatorAnimator != null) {
+            mIndicatorAnimator.cancel();
+        }
+        if (mExpandAnimator != null) {
+            mExpandAnimator.cancel();
+        }
+        if (mProgressiveBuildScheduled) {
+            //重新添加到窗口后布局时再继续创建
+            Looper.myQueue().removeIdleHandler(mProgressiveBuildHandler);
+            mProgressiveBuildScheduled = false;
+        }
+        super.onDetachedFromWindow();
     }
 
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
-        Log.d(TAG, "onLayout...");
-        //当tab全部添加完毕后，会调用此方法
-        if (!isOnce && getChildCount() > 0) {
-            Log.d(TAG, "layout");
-            isOnce = true;//将其置为true,保证此方法只会调用一次
-            //遍历所有的tabText，设置右边的margin
-            for (TextView textView : mTabTextList) {
-                LayoutParams layoutParams = (LayoutParams) textView.getLayoutParams();
-                layoutParams.rightMargin = (int) mTabMinMargin;
-                textView.setLayoutParams(layoutParams);
+        long start = beginMetrics("MultiLayout.layout");
+        int created = mCreatedViewCount;
+        int recycled = mRecycledViewCount;
+        try {
+            layoutTabs();
+        } finally {
+            if (start != 0) {
+                endMetrics(METRICS_LAYOUT, start, created, recycled);
             }
+        }
+    }
 
-            //默认选择第一个
-            if (mViewPager != null) {
-                mViewPager.setCurrentItem(0, false);
+    /**
+     * 摆放tabText
+     */
+    private void layoutTabs() {
+        MultiLayoutLog.d("onLayout...");
+        if (mTabCount == 0 || mRowPacker.getRowCount() == 0) {
+            return;
+        }
+        /*
+         * 所有的tabText都是当前控件的直接子控件，这里按行直接摆放，
+         * 每个tabText右边的间隔为mTabMinMargin，每一行占满宽度时为该行自己的间隔
+         */
+        //virtualized模式下只摆放已经创建了tabText的行
+        boolean isVirtualized = isVirtualizedViewMode();
+        int rowCount = mRowPacker.getRowCount();
+        int lastRow = isVirtualized ? Math.min(mBoundLastRow, rowCount - 1) : rowCount - 1;
+        for (int row = isVirtualized ? mBoundFirstRow : 0; row <= lastRow && !isEmpty(mTabTextList); row++) {
+            int end = mRowPacker.getRowEnd(row);
+            for (int i = mRowPacker.getRowStart(row); i < end; i++) {
+                TextView textView = mTabTextList.get(i);
+                //virtualized模式下不可见的tab没有tabText
+                if (textView != null) {
+                    layoutTabText(textView, i, row);
+                }
             }
-            selectTabText(mTabTextList.get(0), 0);
+        }
+        bindVisibleRows();
+        //换行后indicator跟随选中的tab，ViewPager滑动时由onPageScrolled更新
+        if (isOnce && mSelectedIndex >= 0 && mSelectedIndex < mTabCount
+                && mPageScrollState == ViewPager.SCROLL_STATE_IDLE
+                && (mIndicatorAnimator == null || !mIndicatorAnimator.isRunning())) {
+            updateIndicator(mSelectedIndex);
         }
 
-        super.onLayout(changed, l, t, r, b);
+        //当tab全部添加完毕后，选择等待选中的tab，没有时默认选择第一个，只执行一次
+        if (!isOnce) {
+            MultiLayoutLog.d("layout");
+            isOnce = true;
+            int index = mPendingSelectedIndex;
+            if (index < 0 || index >= mTabCount) {
+                //没有需要选中的tab时跟随ViewPager当前的页面，否则选择第一个
+                index = mViewPager != null && mViewPager.getCurrentItem() < mTabCount ? mViewPager.getCurrentItem() : 0;
+            }
+            mPendingSelectedIndex = -1;
+            //ViewPager已经在需要选中的页面时不再切换，避免页面被销毁重建
+            if (mViewPager != null && mViewPager.getCurrentItem() != index) {
+                mViewPager.setCurrentItem(index, false);
+            }
+            selectTab(index, false, !mSilentSelection);
+            mSilentSelection = false;
+        }
     }
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        Log.d(TAG, "onMeasure...");
-        if (!isOnce && getChildCount() > 0) {
-            Log.d(TAG, "measure");
-            //遍历当前控件的所有子控件
-            for (int i = 0; i < getChildCount(); i++) {
+        long start = beginMetrics("MultiLayout.measure");
+        int created = mCreatedViewCount;
+        int recycled = mRecycledViewCount;
+        try {
+            measureTabs(widthMeasureSpec, heightMeasureSpec);
+        } finally {
+            if (start != 0) {
+                endMetrics(METRICS_MEASURE, start, created, recycled);
+            }
+        }
+    }
 
-                LinearLayout linearLayout = (LinearLayout) getChildAt(i);
-                if (linearLayout.getChildCount() <= 0) {
-                    continue;
-                }
-                //测量子控件的实际宽度
-                int size = MeasureSpec.getSize(widthMeasureSpec);
-                //这里的测量会影响到布局，所以在最后需要调用super.onMeasure
-                int widthMeasure = MeasureSpec.makeMeasureSpec(size, MeasureSpec.AT_MOST);
-                linearLayout.measure(widthMeasure, heightMeasureSpec);
-                int measuredWidth = linearLayout.getMeasuredWidth();
-                //计算每个子控件中每个子控件需要的间隔距离
-                float margin = (mMultiLayoutWidth - measuredWidth) * 1.0f / linearLayout.getChildCount();
-
-                /*
-                 * 找出最小间隔
-                 */
-                if (i == 0) {
-                    mTabMinMargin = margin;
-                    continue;
-                }
-                if (margin < mTabMinMargin) {
-                    mTabMinMargin = margin;
-                }
-                Log.d(TAG, "linearLayout measureWidth: " + measuredWidth);
+    /**
+     * 测量当前控件和tabText
+     *
+     * @param widthMeasureSpec  宽度测量规格
+     * @param heightMeasureSpec 高度测量规格
+     */
+    private void measureTabs(int widthMeasureSpec, int heightMeasureSpec) {
+        MultiLayoutLog.d("onMeasure...");
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        //宽度变化时直接在测量时重新换行，代码中创建时也同样适用
+        if (MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.UNSPECIFIED
+                && width != 0 && width != mMultiLayoutWidth) {
+            onWidthChanged(width);
+        }
+        int height = getPaddingTop() + getPaddingBottom();
+        if (mTabCount > 0 && mRowPacker.getRowCount() > 0) {
+            //每个tabText按照各自tab的宽度和固定的高度直接测量，子控件只有tabText，canvas模式下没有tabText
+            for (int i = 0; i < getChildCount(); i++) {
+                measureTabText((TextView) getChildAt(i));
             }
+            height = getTabsHeight(hasExpandArea() && !mExpanded ? mMaxVisibleRows : mRowPacker.getRowCount());
+        }
+        if (mAnimatedHeight >= 0) {
+            //展开/收起动画过程中使用动画的高度，超出的行被裁剪
+            height = mAnimatedHeight;
+        }
+        setMeasuredDimension(resolveSize(width, widthMeasureSpec),
+                resolveSize(height, heightMeasureSpec));
+    }
 
-            //取得最后一个child
-            View child = getChildAt(getChildCount() - 1);
-            LayoutParams lp = (LayoutParams) child.getLayoutParams();
-            //为了画indicator，所以最后一个child需要设置距离底部的距离
-            lp.bottomMargin = (int) (mIndicatorRectF.bottom - mIndicatorRectF.top);
-            child.setLayoutParams(lp);
+    /**
+     * 计算显示若干行时当前控件的高度
+     *
+     * @param rowCount 显示的行数
+     * @return 高度，包括padding、indicator以及展开/收起按钮
+     */
+    private int getTabsHeight(int rowCount) {
+        //为了画indicator，所以最后一行下方需要留出indicator的高度
+        int height = getPaddingTop() + getPaddingBottom()
+                + (int) (rowCount * mTabHeight + mIndicatorRectF.bottom - mIndicatorRectF.top);
+        if (hasExpandArea()) {
+            height += (int) mExpandAreaHeight;
+        }
+        return height;
+    }
 
-            setMeasuredDimension(widthMeasureSpec, heightMeasureSpec);
+    /**
+     * 控件宽度发生变化，第一次有宽度时创建tab，之后只重新换行，复用已经测量的tab宽度和已经创建的tabText
+     *
+     * @param width 新的宽度
+     */
+    private void onWidthChanged(int width) {
+        int oldWidth = mMultiLayoutWidth;
+        mMultiLayoutWidth = width;
+        MultiLayoutLog.d("mMultiLayoutWidth: ", width);
+        if (oldWidth == 0 || mTabCount == 0) {
+            updateTabs();
+            return;
         }
-        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        rewrapRows();
     }
 
-    @Override
-    protected void onDraw(Canvas canvas) {
-        //保存画布
-        canvas.save();
-        //移动当前画布
-        canvas.translate(mIndicatorTranslateX, mIndicatorTranslateY);
-        //画圆角矩形
-        canvas.drawRoundRect(mIndicatorRectF, mIndicatorRadius,
-                mIndicatorRadius, mIndicatorPaint);
-        //恢复保存的画布
-        canvas.restore();
+    /**
+     * 复用已经测量的tab宽度和已经创建的tabText，从第一行开始重新换行
+     */
+    private void rewrapRows() {
+        if (mVirtualized && isVirtualizedViewMode()) {
+            //可见的行号会发生变化，布局时重新为可见的行创建tabText
+            unbindRows(mBoundFirstRow, mBoundLastRow);
+            resetBoundRows();
+            wrapRows(0);
+        } else if (isVirtualizedViewMode()) {
+            //收起或者分批创建时保留已经创建的tabText
+            int lastBoundTab = getLastBoundTab();
+            wrapRows(0);
+            keepBoundTabs(lastBoundTab);
+        } else {
+            wrapRows(0);
+        }
+        invalidate();
     }
 
     /**
-     * 设置tab的名称
+     * 获取已经创建了tabText的最后一个tab，收起或者分批创建时从第一行开始创建
      *
-     * @param tabNames tab名称集合
+     * @return tab的下标，没有时返回-1
      */
-    public void initTabNames(List<String> tabNames) {
-        updateTabNames(tabNames, false);
+    private int getLastBoundTab() {
+        if (mBoundLastRow < 0 || mBoundLastRow >= mRowPacker.getRowCount()) {
+            return -1;
+        }
+        return mRowPacker.getRowEnd(mBoundLastRow) - 1;
     }
 
     /**
-     * 关联viewPager
+     * 重新换行后保留已经创建的tabText，只更新已经创建的行的范围，不需要回收后重新创建
      *
-     * @param viewPager ViewPager，调用此方法前最好先给viewPager设置adapter
+     * @param lastBoundTab 换行前已经创建了tabText的最后一个tab
      */
-    public void setupWithViewPager(@NonNull ViewPager viewPager) {
-        this.mViewPager = viewPager;
-        PagerAdapter adapter = viewPager.getAdapter();
-        if (adapter == null) {
+    private void keepBoundTabs(int lastBoundTab) {
+        lastBoundTab = Math.min(lastBoundTab, mTabCount - 1);
+        if (lastBoundTab < 0 || mRowPacker.getRowCount() == 0) {
+            resetBoundRows();
             return;
         }
-        mDataSetObserver = new MultiLayoutDataSetObserver();
-        adapter.registerDataSetObserver(mDataSetObserver);
-        setTabNamesByAdapter(adapter);
-        //设置adapter变化的监听事件
-        this.mViewPager.addOnAdapterChangeListener(this);
-        //设置viewPager切换pager的监听事件
-        this.mViewPager.addOnPageChangeListener(this);
+        mBoundFirstRow = 0;
+        mBoundLastRow = mRowPacker.findRow(lastBoundTab);
+        //换行后最后一行中可能只有部分tab有tabText，补齐
+        bindRow(mBoundLastRow);
     }
 
     /**
-     * 设置tabNames通过viewPager的adapter
+     * 获取某一行中每个tab右边的间隔
      *
-     * @param adapter {@link ViewPager#getAdapter()}
+     * @param row 行号
+     * @return 间隔
      */
-    private void setTabNamesByAdapter(@NonNull PagerAdapter adapter) {
-        Log.d(TAG, "setTabNames");
-        /*
-         * 获取adapter中的数据个数，然后遍历数据获取pageTitle
-         */
-        int count = adapter.getCount();
-        List<String> tabNames = new ArrayList<>(count);
-        for (int i = 0; i < count; i++) {
-            CharSequence title = adapter.getPageTitle(i);
-            tabNames.add((String) title);
-        }
-
-        updateTabNames(tabNames, true);
+    private float getRowMarginAt(int row) {
+        return mJustifyRows ? mRowPacker.getRowMargin(row) : mTabMinMargin;
     }
 
     /**
-     * 更新tabName
+     * 获取tab的宽度，不超过可用宽度，超出时tab的文字显示省略号
      *
-     * @param tabNames tab名称集合
+     * @param index tab的下标
+     * @return tab的宽度
      */
-    public void updateTabNames(List<String> tabNames) {
-        updateTabNames(tabNames, true);
+    private int getTabWidthAt(int index) {
+        int width = (int) mTabWidths[index];
+        int availableWidth = getAvailableWidth();
+        return availableWidth > 0 ? Math.min(width, availableWidth) : width;
     }
 
     /**
-     * 更新数据
+     * 找出坐标所在的tab
      *
-     * @param tabNames tab名称集合
-     * @param isUpdate true 更新tabText， false不更新
+     * @param x x坐标
+     * @param y y坐标
+     * @return tab的下标，没有则返回-1
      */
-    private void updateTabNames(List<String> tabNames, boolean isUpdate) {
-        if (!isEmpty(mTabNames)) {
-            mTabNames.clear();//如果以前集合有数据则清空
+    private int findTabAt(float x, float y) {
+        if (mRowPacker.getRowCount() == 0) {
+            return -1;
         }
-        mTabNames = tabNames;//tabs赋值
-        if (isUpdate) {
-            updateTabs();
+        float top = y - getPaddingTop();
+        float left = x - getPaddingLeft();
+        if (top < 0 || left < 0) {
+            return -1;
         }
-        isOnce = false;//如果新更新了tab，则需要重新测量和布局
-        requestLayout();//请求测量和布局
+        int row = (int) (top / mTabHeight);
+        //收起时隐藏的行不能点击
+        if (row >= getShownRowCount()) {
+            return -1;
+        }
+        //tab的左边位置在一行中是递增的，二分查找左边位置不超过x的最后一个tab
+        int start = mRowPacker.getRowStart(row);
+        int low = start;
+        int high = mRowPacker.getRowEnd(row) - 1;
+        float margin = getRowMarginAt(row);
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (mTabOffsets[mid] + (mid - start) * margin <= left) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        //落在tab之间的间隔中
+        if (left - (mTabOffsets[low] + (low - start) * margin) > getTabWidthAt(low)) {
+            return -1;
+        }
+        return low;
     }
 
     /**
-     * 获取tabText之间的距离
+     * 摆放tabText
      *
-     * @return tabText之间的距离值
+     * @param textView tabText
+     * @param index    tabText在集合中的下标
+     * @param row      tabText所在的行
      */
-    public float getTabMinMargin() {
-        return mTabMinMargin;
+    private void layoutTabText(TextView textView, int index, int row) {
+        int left = (int) getTabLeft(index, row);
+        int top = getPaddingTop() + (int) (row * mTabHeight);
+        textView.layout(left, top, left + textView.getMeasuredWidth(), top + textView.getMeasuredHeight());
     }
 
     /**
-     * 根据tabNames中的数据去更新view
+     * 获取tab左边的位置
+     *
+     * @param index tab的下标
+     * @param row   tab所在的行
+     * @return tab左边的位置
      */
-    private void updateTabs() {
-        Log.d(TAG, "update Tabs...");
-        if (mMultiLayoutWidth == 0) {
-            Log.d(TAG, "mMultiLayoutWidth is 0");
-            return;
-        }
-
-        this.removeAllViews();
-
-        if (isEmpty(mTabNames)) {
-            Log.d(TAG, "mTabName is empty");
-            return;
-        }
-
-        //创建一个mTabTextList用于存放创建的TextView
-        if (!isEmpty(mTabTextList)) {
-            mTabTextList.clear();
-        }
-        mTabTextList = new ArrayList<>(mTabNames.size());
-        //创建一行水平线性布局
-        LinearLayout linearLayout = newLinearLayout();
-        this.addView(linearLayout);
-        int mViewWidth = 0;//tabTextView的宽度
-        //临时宽度，主要是用于当前tabText的宽度+mViewWidth的宽度之后的临时值和控件宽度mTopicLayoutWidth作比较
-        int tmpViewWidth;
-
-        //遍历mTabNames，创建布局和TextView,用于动态计算控件的位置
-        for (String tabName : mTabNames) {
-            TextView tabText = newTabText(tabName);
-            mTabTextList.add(tabText);
-            //测量控件
-            measureTabText(tabText);
+    private float getTabLeft(int index, int row) {
+        //之前的tab宽度之和加上之前的tab右边的间隔
+        return getPaddingLeft() + mTabOffsets[index] + mTabColumns[index] * getRowMarginAt(row);
+    }
 
-            //此处值只能用getMeasuredWidth
-            int width = tabText.getMeasuredWidth();
-            tmpViewWidth = mViewWidth + width;
-            /*
-             * 往linearLayout中添加tabText之前,
-             * 需要判断tmpViewWidth（当前linearLayout中添加的控件宽度之和 + tabText的宽度）
-             * 和 mTopicLayoutWidth之间的关系，如果大于，则不能再添加，否则可以添加
-             */
-            if (tmpViewWidth <= mMultiLayoutWidth) {
-                mViewWidth += width;
-                linearLayout.addView(tabText);
-                continue;
+    @Override
+    protected void onDraw(Canvas canvas) {
+        long start = beginMetrics("MultiLayout.draw");
+        int created = mCreatedViewCount;
+        int recycled = mRecycledViewCount;
+        try {
+            drawTabs(canvas);
+        } finally {
+            if (start != 0) {
+                endMetrics(METRICS_DRAW, start, created, recycled);
             }
-
-            /*
-             * linearLayout不能再添加tabText时，需要将linearLayout加入到当前控件中，然后重新创建linearLayout
-             */
-            mViewWidth = width;
-            linearLayout = newLinearLayout();
-            this.addView(linearLayout);
-            linearLayout.addView(tabText);
         }
-        Log.d(TAG, "childCount: " + getChildCount());
     }
 
     /**
-     * 创建一个linearLayout布局
+     * 绘制canvas模式下的tab文字以及indicator
      *
-     * @return 返回一个linearLayout
+     * @param canvas 画布
      */
-    @NonNull
-    private LinearLayout newLinearLayout() {
-        LinearLayout linearLayout = new LinearLayout(mContext);
-        LayoutParams lp = new LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
-                ViewGroup.LayoutParams.WRAP_CONTENT);
-        linearLayout.setLayoutParams(lp);
-        linearLayout.setOrientation(HORIZONTAL);
-        return linearLayout;
+    private void drawTabs(Canvas canvas) {
+        boolean hasExpandArea = hasExpandArea();
+        if (hasExpandArea) {
+            //展开/收起按钮区域中不绘制tab和indicator
+            canvas.save();
+            canvas.clipRect(0, 0, getWidth(), getExpandAreaTop());
+        }
+        if (mRenderMode == RENDER_MODE_CANVAS) {
+            drawTabTexts(canvas);
+        }
+        //保存画布
+        canvas.save();
+        //移动当前画布
+        canvas.translate(mIndicatorTranslateX, mIndicatorTranslateY);
+        //画圆角矩形
+        canvas.drawRoundRect(mIndicatorRectF, mIndicatorRadius,
+                mIndicatorRadius, mIndicatorPaint);
+        //恢复保存的画布
+        canvas.restore();
+        if (hasExpandArea) {
+            canvas.restore();
+            drawExpandArea(canvas);
+        }
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        if (!hasExpandArea()) {
+            super.dispatchDraw(canvas);
+            return;
+        }
+        //动画过程中tabText会移动到展开/收起按钮的区域中，需要裁剪
+        canvas.save();
+        canvas.clipRect(0, 0, getWidth(), getExpandAreaTop());
+        super.dispatchDraw(canvas);
+        canvas.restore();
     }
 
     /**
-     * 创建一个tabTextView
+     * 在底部绘制展开/收起按钮，收起时箭头向下，展开时箭头向上
      *
-     * @param tabName tabText名称
-     * @return tabText
+     * @param canvas 画布
      */
-    @NonNull
-    private TextView newTabText(String tabName) {
-        TextView tabText = new TextView(mContext);
-        tabText.setTextSize(mTabTextSize);
-        tabText.setTextColor(mTabTextColor);
-        tabText.setGravity(Gravity.CENTER);
-        tabText.setMaxLines(1);
-        tabText.setEllipsize(TextUtils.TruncateAt.END);
-        tabText.setText(tabName);
-        LayoutParams layoutParams = new LayoutParams((int) mTabWidth, (int) mTabHeight);
-        tabText.setLayoutParams(layoutParams);
-        tabText.setOnClickListener(this);
-        return tabText;
+    private void drawExpandArea(Canvas canvas) {
+        float centerX = getWidth() / 2f;
+        float centerY = getExpandAreaTop() + mExpandAreaHeight / 2;
+        float halfWidth = mExpandAreaHeight / 4;
+        float halfHeight = mExpandAreaHeight / 8;
+        float direction = mExpanded ? -1 : 1;
+        mExpandArrowPath.reset();
+        mExpandArrowPath.moveTo(centerX - halfWidth, centerY - direction * halfHeight);
+        mExpandArrowPath.lineTo(centerX, centerY + direction * halfHeight);
+        mExpandArrowPath.lineTo(centerX + halfWidth, centerY - direction * halfHeight);
+        canvas.drawPath(mExpandArrowPath, mExpandPaint);
     }
 
     /**
-     * 更新indicator的位置
+     * 超出最多显示的行数时才有展开/收起按钮
      *
-     * @param textView 当前点击的tabText
-     * @param position tabText的位置，此位置是每一行对应的位置
+     * @return true 有，false 没有
      */
-    private void updateIndicator(TextView textView, int position) {
-        Log.d(TAG, "updateIndicator");
-        int translateX;
-        int translateY;
-        if (position == 0) {
-            translateX = (int) mIndicatorMargin;
-        } else {
-            translateX = (int) ((mTabWidth + mTabMinMargin) * position + mIndicatorMargin);
-        }
-        translateY = (int) ((indexOfChild((View) textView.getParent()) + 1) * mTabHeight);
-        mIndicatorTranslateX = translateX;
-        mIndicatorTranslateY = translateY;
-        invalidate();
+    private boolean hasExpandArea() {
+        return mMaxVisibleRows > 0 && mRowPacker.getRowCount() > mMaxVisibleRows;
     }
 
-    /*
-     * 测量view控件的宽高
+    /**
+     * @return 展开/收起按钮区域上边的位置，位于当前控件的底部
      */
-    private void measureTabText(TextView view) {
-        int w = MeasureSpec.makeMeasureSpec((int) mTabWidth, MeasureSpec.EXACTLY);
-        int h = MeasureSpec.makeMeasureSpec((int) mTabHeight, MeasureSpec.EXACTLY);
-        view.measure(w, h);
+    private float getExpandAreaTop() {
+        return getHeight() - getPaddingBottom() - mExpandAreaHeight;
     }
 
-    @Override
-    public void onClick(View v) {
-        if (mCurrentTabText == v) {
-            return;
-        }
-
-        if (!(v instanceof TextView)) {
-            return;
-        }
+    /**
+     * 坐标是否在展开/收起按钮区域中
+     *
+     * @param y y坐标
+     * @return true 在，false 不在
+     */
+    private boolean isInExpandArea(float y) {
+        return hasExpandArea() && y >= getExpandAreaTop() && y < getHeight() - getPaddingBottom();
+    }
 
-        TextView textView = (TextView) v;
-        //tabText点击时，如果ViewPager不为空则需要与其联动
-        int index = mTabTextList.indexOf(textView);
-        //处理状态选择事件
-        selectTabText(textView, index);
-        if (mViewPager != null) {
-            mViewPager.setCurrentItem(index, false);
+    /**
+     * 需要显示的行数，收起时不超过最多显示的行数，展开/收起动画过程中显示所有的行
+     *
+     * @return 行数
+     */
+    private int getShownRowCount() {
+        int rowCount = mRowPacker.getRowCount();
+        if (!hasExpandArea() || mExpanded || (mExpandAnimator != null && mExpandAnimator.isRunning())) {
+            return rowCount;
         }
+        return mMaxVisibleRows;
     }
 
     /**
-     * 选择TabText
+     * canvas模式下绘制所有tab的文字，只绘制可见区域中的行
      *
-     * @param textView tabText
-     * @param index    当前textView在集合中的下标
+     * @param canvas 画布
      */
-    private void selectTabText(@NonNull TextView textView, int index) {
-        //将其置为选择状态
-        textView.setSelected(true);
-        if (mCurrentTabText != null) {
-            mCurrentTabText.setSelected(false);//取消前一个的选择状态
+    private void drawTabTexts(Canvas canvas) {
+        //名称集合已经替换但还没有更新tab时不绘制
+        if (mTabCount == 0 || mRowPacker.getRowCount() == 0 || isEmpty(mTabNames) || mTabNames.size() < mTabCount) {
+            return;
         }
-        mCurrentTabText = textView;
-
-        LinearLayout parent = (LinearLayout) textView.getParent();
-        //找出tabText的位置
-        int position = parent.indexOfChild(textView);
-        //更新indicator
-        updateIndicator(textView, position);
-        if (mOnTabSelectListener != null) {//监听事件
-            mOnTabSelectListener.select(textView, position, index);
+        canvas.getClipBounds(mClipRect);
+        int top = getPaddingTop();
+        int rowCount = mRowPacker.getRowCount();
+        for (int row = 0; row < rowCount; row++, top += (int) mTabHeight) {
+            if (top + mTabHeight < mClipRect.top || top > mClipRect.bottom) {
+                continue;
+            }
+            float left = getPaddingLeft();
+            float margin = getRowMarginAt(row);
+            int end = mRowPacker.getRowEnd(row);
+            for (int i = mRowPacker.getRowStart(row); i < end; i++) {
+                mTabTextRenderer.draw(canvas, mTabNames.get(i), i, left, top, getTabWidthAt(i), i == mSelectedIndex);
+                left += getTabWidthAt(i) + margin;
+            }
         }
     }
 
     @Override
-    public void onPageScrolled(int position, float positionOffset,
-                               int positionOffsetPixels) {
-        Log.d(TAG, "onPageScrolled");
+    public boolean onInterceptTouchEvent(MotionEvent ev) {
+        //动画过程中展开/收起按钮下方可能有tabText，按钮优先
+        if (ev.getActionMasked() == MotionEvent.ACTION_DOWN && isInExpandArea(ev.getY())) {
+            return true;
+        }
+        return super.onInterceptTouchEvent(ev);
     }
 
     @Override
-    public void onPageSelected(int position) {
-        Log.d(TAG, "onPageSelected postion: " + position);
-        //根据viewPager页面切换时回调次方法，所以可以通过position获得tabText
-        if (isEmpty(mTabTextList)) {
-            return;
+    public boolean onTouchEvent(MotionEvent event) {
+        if (handleExpandAreaTouch(event)) {
+            return true;
         }
-        TextView textView = mTabTextList.get(position);
-        if (mCurrentTabText == textView) {
-            return;
+        if (mRenderMode != RENDER_MODE_CANVAS) {
+            return super.onTouchEvent(event);
+        }
+        //canvas模式下没有tabText，需要自己处理点击事件
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                mTouchDownIndex = findTabAt(event.getX(), event.getY());
+                if (mTouchDownIndex < 0) {
+                    return super.onTouchEvent(event);
+                }
+                return true;
+            case MotionEvent.ACTION_UP:
+                int index = findTabAt(event.getX(), event.getY());
+                if (mTouchDownIndex >= 0 && index == mTouchDownIndex) {
+                    //通过performClick处理点击，保证无障碍服务能收到点击事件
+                    performClick();
+                }
+                mTouchDownIndex = -1;
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                mTouchDownIndex = -1;
+                return true;
+            default:
+                return mTouchDownIndex >= 0 || super.onTouchEvent(event);
         }
-        //选择当前tabText
-        selectTabText(textView, position);
     }
 
     @Override
-    public void onPageScrollStateChanged(int state) {
-        Log.d(TAG, "onPageScrollStateChanged:  " + state);
+    public boolean performClick() {
+        int index = mTouchDownIndex;
+        if (mRenderMode != RENDER_MODE_CANVAS || index < 0) {
+            return super.performClick();
+        }
+        //设置了OnClickListener时已经播放了点击音效
+        if (!super.performClick()) {
+            playSoundEffect(SoundEffectConstants.CLICK);
+        }
+        clickVirtualTab(index);
+        return true;
+    }
+
+    /**
+     * canvas模式下点击tab，并通知无障碍服务
+     *
+     * @param index tab的下标
+     */
+    private void clickVirtualTab(int index) {
+        clickTab(index);
+        mAccessibilityHelper.sendEventForVirtualView(index, AccessibilityEvent.TYPE_VIEW_CLICKED);
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        //canvas模式下没有tabText，由mAccessibilityHelper找出触摸浏览时所在的tab
+        if (mRenderMode == RENDER_MODE_CANVAS && mAccessibilityHelper.dispatchHoverEvent(event)) {
+            return true;
+        }
+        return super.dispatchHoverEvent(event);
+    }
+
+    /**
+     * canvas模式下没有tabText，使用虚拟节点向无障碍服务提供每个tab；view模式下使用tabText本身
+     */
+    private void applyAccessibilityHelper() {
+        if (mRenderMode == RENDER_MODE_CANVAS) {
+            if (mAccessibilityHelper == null) {
+                mAccessibilityHelper = new TabAccessibilityHelper(this);
+            }
+            ViewCompat.setAccessibilityDelegate(this, mAccessibilityHelper);
+        } else if (mAccessibilityHelper != null) {
+            ViewCompat.setAccessibilityDelegate(this, null);
+        }
+    }
+
+    /**
+     * 处理展开/收起按钮的点击
+     *
+     * @param event 触摸事件
+     * @return true 已经处理
+     */
+    private boolean handleExpandAreaTouch(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                mExpandAreaPressed = isInExpandArea(event.getY());
+                return mExpandAreaPressed;
+            case MotionEvent.ACTION_UP:
+                boolean pressed = mExpandAreaPressed;
+                mExpandAreaPressed = false;
+                if (pressed && isInExpandArea(event.getY())) {
+                    playSoundEffect(SoundEffectConstants.CLICK);
+                    setExpanded(!mExpanded, true);
+                }
+                return pressed;
+            case MotionEvent.ACTION_CANCEL:
+                pressed = mExpandAreaPressed;
+                mExpandAreaPressed = false;
+                return pressed;
+            default:
+                return mExpandAreaPressed;
+        }
+    }
+
+    /**
+     * 设置收起时最多显示的行数，超出时底部显示展开/收起按钮。
+     * 收起时只为显示的行创建、测量和摆放tabText，展开后再为其余的行创建
+     *
+     * @param maxVisibleRows 最多显示的行数，0表示不限制
+     */
+    public void setMaxVisibleRows(int maxVisibleRows) {
+        if (mMaxVisibleRows == maxVisibleRows) {
+            return;
+        }
+        mMaxVisibleRows = maxVisibleRows;
+        if (mExpandAnimator != null) {
+            mExpandAnimator.cancel();
+        }
+        int oldSelectedIndex = mSelectedIndex;
+        updateTabs();
+        retainSelection(mTabNames, oldSelectedIndex);
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * 获取收起时最多显示的行数
+     *
+     * @return 最多显示的行数，0表示不限制
+     */
+    public int getMaxVisibleRows() {
+        return mMaxVisibleRows;
+    }
+
+    /**
+     * 展开或者收起，只对超出{@link #setMaxVisibleRows(int)}的行有效。
+     * 已经显示的行保持不变，展开时只为新显示的行创建tabText，收起后回收隐藏的行中的tabText
+     *
+     * @param expanded true 展开，false 收起
+     * @param animate  true 使用动画改变高度
+     */
+    public void setExpanded(boolean expanded, boolean animate) {
+        if (mExpanded == expanded) {
+            return;
+        }
+        //从当前的高度开始动画，动画过程中再次切换时不会跳动
+        int fromHeight = mAnimatedHeight >= 0 ? mAnimatedHeight : getHeight();
+        mExpanded = expanded;
+        if (mExpandAnimator != null) {
+            mExpandAnimator.cancel();
+        }
+        if (animate && hasExpandArea() && ViewCompat.isLaidOut(this)) {
+            int toHeight = getTabsHeight(expanded ? mRowPacker.getRowCount() : mMaxVisibleRows);
+            animateHeight(fromHeight, toHeight);
+        }
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * 是否已经展开
+     *
+     * @return true 展开，false 收起
+     */
+    public boolean isExpanded() {
+        return mExpanded;
+    }
+
+    /**
+     * 使用动画改变当前控件的高度，结束后按展开/收起状态重新布局
+     *
+     * @param fromHeight 开始的高度
+     * @param toHeight   结束的高度
+     */
+    private void animateHeight(int fromHeight, int toHeight) {
+        if (mExpandAnimator == null) {
+            mExpandAnimator = ValueAnimator.ofInt(fromHeight, toHeight);
+            mExpandAnimator.setDuration(getResources().getInteger(android.R.integer.config_shortAnimTime));
+            mExpandAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+                @Override
+                public void onAnimationUpdate(ValueAnimator animation) {
+                    mAnimatedHeight = (Integer) animation.getAnimatedValue();
+                    requestLayout();
+                }
+            });
+            mExpandAnimator.addListener(new AnimatorListenerAdapter() {
+                @Override
+                public void onAnimationEnd(Animator animation) {
+                    //收起时在布局时回收隐藏的行中的tabText
+                    mAnimatedHeight = -1;
+                    requestLayout();
+                }
+            });
+        } else {
+            mExpandAnimator.setIntValues(fromHeight, toHeight);
+        }
+        mAnimatedHeight = fromHeight;
+        mExpandAnimator.start();
+    }
+
+    /**
+     * 设置tab的渲染方式
+     *
+     * @param renderMode {@link #RENDER_MODE_VIEW} 或者 {@link #RENDER_MODE_CANVAS}
+     */
+    public void setRenderMode(int renderMode) {
+        if (mRenderMode == renderMode) {
+            return;
+        }
+        mRenderMode = renderMode;
+        applyTabGridCache();
+        applyAccessibilityHelper();
+        int oldSelectedIndex = mSelectedIndex;
+        updateTabs();
+        retainSelection(mTabNames, oldSelectedIndex);
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * 获取tab的渲染方式
+     *
+     * @return {@link #RENDER_MODE_VIEW} 或者 {@link #RENDER_MODE_CANVAS}
+     */
+    public int getRenderMode() {
+        return mRenderMode;
+    }
+
+    /**
+     * 设置换行策略，行数相同，只改变每一行中tab的个数。会复用已经测量的宽度和已经创建的tabText
+     *
+     * @param rowPacking {@link #ROW_PACKING_GREEDY} 或者 {@link #ROW_PACKING_BALANCED}
+     */
+    public void setRowPacking(int rowPacking) {
+        if (mRowPacker.getStrategy() == rowPacking) {
+            return;
+        }
+        mRowPacker.setStrategy(rowPacking);
+        if (mTabCount > 0 && mMultiLayoutWidth > 0) {
+            rewrapRows();
+            requestLayout();
+        }
+    }
+
+    /**
+     * 获取换行策略
+     *
+     * @return {@link #ROW_PACKING_GREEDY} 或者 {@link #ROW_PACKING_BALANCED}
+     */
+    public int getRowPacking() {
+        return mRowPacker.getStrategy();
+    }
+
+    /**
+     * 设置tab宽度的计算方式。{@link #TAB_WIDTH_WRAP_CONTENT}对按需获取的tab名称无效，仍然使用tab_text_width
+     *
+     * @param tabWidthMode {@link #TAB_WIDTH_FIXED} 或者 {@link #TAB_WIDTH_WRAP_CONTENT}
+     */
+    public void setTabWidthMode(int tabWidthMode) {
+        if (mTabWidthMode == tabWidthMode) {
+            return;
+        }
+        mTabWidthMode = tabWidthMode;
+        mTabWidthMeasurer = null;
+        if (mTabCount > 0 && mMultiLayoutWidth > 0) {
+            measureTabWidths(0);
+            rewrapRows();
+            requestLayout();
+        }
+    }
+
+    /**
+     * 获取tab宽度的计算方式
+     *
+     * @return {@link #TAB_WIDTH_FIXED} 或者 {@link #TAB_WIDTH_WRAP_CONTENT}
+     */
+    public int getTabWidthMode() {
+        return mTabWidthMode;
+    }
+
+    /**
+     * 设置每一行是否都占满宽度。默认所有行使用相同的间隔，tab上下对齐；
+     * 设置为true时每一行按自己剩余的宽度计算间隔，tab较少的行间隔更大
+     *
+     * @param justifyRows true 每一行都占满宽度
+     */
+    public void setJustifyRows(boolean justifyRows) {
+        if (mJustifyRows == justifyRows) {
+            return;
+        }
+        mJustifyRows = justifyRows;
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * 每一行是否都占满宽度
+     *
+     * @return true 是，false 不是
+     */
+    public boolean isJustifyRows() {
+        return mJustifyRows;
+    }
+
+    /**
+     * 选中某个tab，关联了ViewPager时同时切换ViewPager的页面。同一帧中多次调用时只在下一帧中选中最后一次设置的tab，
+     * 只回调一次{@link OnTabSelectListener}并且只重绘一次。tab还没有布局时会在布局完成后选中
+     *
+     * @param index   tab的下标
+     * @param animate true indicator使用动画移动，关联了ViewPager时ViewPager平滑滚动
+     */
+    public void setSelectedIndex(int index, boolean animate) {
+        mPendingSelectedIndex = index;
+        mPendingSelectAnimate = animate;
+        if (!mSelectionScheduled) {
+            mSelectionScheduled = true;
+            ViewCompat.postOnAnimation(this, mApplySelectionRunnable);
+        }
+    }
+
+    /**
+     * 获取当前选中的tab下标
+     *
+     * @return tab的下标，没有选中时为-1
+     */
+    public int getSelectedIndex() {
+        return mSelectedIndex;
+    }
+
+    /**
+     * 选中等待选中的tab
+     */
+    private void applyPendingSelection() {
+        int index = mPendingSelectedIndex;
+        //还没有布局时在onLayout中选中
+        if (!isOnce || index < 0) {
+            return;
+        }
+        //已经布局完成，超出范围的下标直接丢弃，避免一直等待选中导致数据变化时无法保持选中的tab
+        mPendingSelectedIndex = -1;
+        if (index >= mTabCount || index == mSelectedIndex) {
+            return;
+        }
+        if (mViewPager != null && mViewPager.getCurrentItem() != index) {
+            //通过onPageSelected选中，平滑滚动时indicator跟随onPageScrolled移动
+            mViewPager.setCurrentItem(index, mPendingSelectAnimate);
+        }
+        if (index != mSelectedIndex) {
+            selectTab(index, mPendingSelectAnimate);
+        }
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState savedState = new SavedState(super.onSaveInstanceState());
+        savedState.selectedIndex = mSelectedIndex;
+        savedState.expanded = mExpanded;
+        return savedState;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        setExpanded(savedState.expanded, false);
+        if (savedState.selectedIndex >= 0) {
+            //恢复时不使用动画，tab还没有布局时在布局完成后选中
+            setSelectedIndex(savedState.selectedIndex, false);
+        }
+    }
+
+    /**
+     * 设置canvas模式下是否缓存tab文字的绘制结果。API 29及以上每个tab的文字录制到一个RenderNode中，
+     * indicator移动等重绘时不需要重新绘制文字，选中状态变化时只重新录制前后两个tab。
+     * 低版本上设置无效：硬件层会包含indicator，每次移动indicator都要重新绘制整个层，比不缓存更慢。
+     * view模式下每个tabText已经有自己的显示列表，设置无效
+     *
+     * @param enabled true 缓存
+     */
+    public void setTabGridCacheEnabled(boolean enabled) {
+        if (mTabGridCacheEnabled == enabled) {
+            return;
+        }
+        mTabGridCacheEnabled = enabled;
+        applyTabGridCache();
+        invalidate();
+    }
+
+    /**
+     * @return canvas模式下是否缓存tab文字的绘制结果
+     */
+    public boolean isTabGridCacheEnabled() {
+        return mTabGridCacheEnabled;
+    }
+
+    /**
+     * 根据当前的渲染方式开启或者关闭tab文字的缓存
+     */
+    private void applyTabGridCache() {
+        boolean enabled = mTabGridCacheEnabled && mRenderMode == RENDER_MODE_CANVAS;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            mTabTextRenderer.setRenderNodes(enabled ? new TabRenderNodes() : null);
+        }
+    }
+
+    /**
+     * 设置tab的名称
+     *
+     * @param tabNames tab名称集合
+     */
+    public void initTabNames(List<? extends CharSequence> tabNames) {
+        detachTabModel();
+        updateTabNames(copyTabNames(tabNames), false);
+    }
+
+    /**
+     * 关联viewPager
+     *
+     * @param viewPager ViewPager，调用此方法前最好先给viewPager设置adapter
+     */
+    public void setupWithViewPager(@NonNull ViewPager viewPager) {
+        setupWithViewPager(viewPager, false);
+    }
+
+    /**
+     * 关联viewPager
+     *
+     * @param viewPager  ViewPager，调用此方法前最好先给viewPager设置adapter
+     * @param lazyTitles true 只在需要显示某个tab时才调用adapter的getPageTitle，适用于页面很多、获取pageTitle耗时的adapter
+     */
+    public void setupWithViewPager(@NonNull ViewPager viewPager, boolean lazyTitles) {
+        this.mViewPager = viewPager;
+        mLazyAdapterTitles = lazyTitles;
+        PagerAdapter adapter = viewPager.getAdapter();
+        if (adapter == null) {
+            return;
+        }
+        mDataSetObserver = new MultiLayoutDataSetObserver();
+        adapter.registerDataSetObserver(mDataSetObserver);
+        setTabNamesByAdapter(adapter);
+        //设置adapter变化的监听事件
+        this.mViewPager.addOnAdapterChangeListener(this);
+        //设置viewPager切换pager的监听事件
+        this.mViewPager.addOnPageChangeListener(this);
+    }
+
+    /**
+     * 设置tabNames通过viewPager的adapter
+     *
+     * @param adapter {@link ViewPager#getAdapter()}
+     */
+    private void setTabNamesByAdapter(@NonNull PagerAdapter adapter) {
+        MultiLayoutLog.d("setTabNames");
+        detachTabModel();
+        if (mLazyAdapterTitles) {
+            updateTabNames(new LazyTabTitles(new PagerAdapterTitleProvider(adapter), mTabTitlePlaceholder), true);
+            return;
+        }
+        /*
+         * 获取adapter中的数据个数，然后遍历数据获取pageTitle
+         */
+        int count = adapter.getCount();
+        List<CharSequence> tabNames = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            //pageTitle可能是SpannableString等，直接使用不转换为String
+            tabNames.add(adapter.getPageTitle(i));
+        }
+
+        updateTabNames(tabNames, true);
+    }
+
+    /**
+     * 更新tabName
+     *
+     * @param tabNames tab名称集合
+     */
+    public void updateTabNames(List<? extends CharSequence> tabNames) {
+        detachTabModel();
+        updateTabNames(copyTabNames(tabNames), true);
+    }
+
+    /**
+     * adapter中的数据全部发生了变化，重新获取tab的个数和名称
+     */
+    void onTabsChanged() {
+        if (mTabNames instanceof LazyTabTitles) {
+            setTabTitleProvider(((LazyTabTitles) mTabNames).getProvider());
+        }
+    }
+
+    /**
+     * adapter中插入了数据
+     *
+     * @param positionStart 第一个插入的位置
+     * @param itemCount     插入的个数
+     */
+    void onTabRangeInserted(int positionStart, int itemCount) {
+        int selected = mSelectedIndex;
+        if (selected >= positionStart) {
+            selected += itemCount;
+        }
+        applyTabRangeChange(positionStart, 0, positionStart, itemCount, selected, true);
+    }
+
+    /**
+     * adapter中移除了数据
+     *
+     * @param positionStart 第一个移除的位置
+     * @param itemCount     移除的个数
+     */
+    void onTabRangeRemoved(int positionStart, int itemCount) {
+        int selected = mSelectedIndex;
+        boolean isSelectedKept = true;
+        if (selected >= positionStart + itemCount) {
+            selected -= itemCount;
+        } else if (selected >= positionStart) {
+            //选中的tab被移除时选中移除位置的tab
+            selected = positionStart;
+            isSelectedKept = false;
+        }
+        applyTabRangeChange(positionStart, itemCount, positionStart, 0, selected, isSelectedKept);
+    }
+
+    /**
+     * adapter中移动了数据
+     *
+     * @param fromPosition 移动前的位置
+     * @param toPosition   移动后的位置
+     * @param itemCount    移动的个数
+     */
+    void onTabRangeMoved(int fromPosition, int toPosition, int itemCount) {
+        int selected = mSelectedIndex;
+        if (selected >= fromPosition && selected < fromPosition + itemCount) {
+            selected += toPosition - fromPosition;
+        } else if (fromPosition < toPosition && selected >= fromPosition + itemCount
+                && selected < toPosition + itemCount) {
+            selected -= itemCount;
+        } else if (fromPosition > toPosition && selected >= toPosition && selected < fromPosition) {
+            selected += itemCount;
+        }
+        applyTabRangeChange(fromPosition, itemCount, toPosition, itemCount, selected, true);
+    }
+
+    /**
+     * adapter中插入、移除或者移动了数据，先移除再插入。只回收移除的tabText、创建插入的tabText，
+     * 其余的tabText只更新下标，不需要重新绑定
+     *
+     * @param removeStart      第一个移除的位置
+     * @param removeCount      移除的个数
+     * @param insertStart      第一个插入的位置，是移除之后的位置
+     * @param insertCount      插入的个数
+     * @param newSelectedIndex 选中的tab更新后的位置
+     * @param isSelectedKept   选中的tab是否还在，被移除时为false
+     */
+    private void applyTabRangeChange(int removeStart, int removeCount, int insertStart, int insertCount,
+                                     int newSelectedIndex, boolean isSelectedKept) {
+        if (!(mTabNames instanceof LazyTabTitles)) {
+            return;
+        }
+        mUpdateGeneration++;
+        List<CharSequence> oldTabNames = mTabNames;
+        //位置发生了变化，缓存的名称不能再使用，只会重新获取可见的tab的名称
+        mTabNames = new LazyTabTitles(((LazyTabTitles) oldTabNames).getProvider(), mTabTitlePlaceholder);
+        if (mTabCount > 0 && mMultiLayoutWidth != 0 && !mTabNames.isEmpty()
+                && mTabCount - removeCount + insertCount == mTabNames.size()) {
+            shiftTabs(removeStart, removeCount, insertStart, insertCount);
+            mSelectedIndex = isSelectedKept ? newSelectedIndex : -1;
+        } else {
+            updateTabs();
+        }
+        retainSelection(oldTabNames, newSelectedIndex, isSelectedKept);
+        requestLayout();
+    }
+
+    /**
+     * 按需获取tab名称，只在需要显示某个tab时才获取其名称，换行只依赖tab的个数。
+     * 配合{@link #setVirtualized(boolean)}或者{@link #RENDER_MODE_CANVAS}使用时只会获取可见的tab的名称。
+     * tab的个数变化时需要重新设置
+     *
+     * @param provider tab名称提供者，为null时清空tab
+     */
+    public void setTabTitleProvider(@Nullable TabTitleProvider provider) {
+        detachTabModel();
+        updateTabNames(provider == null ? null : new LazyTabTitles(provider, mTabTitlePlaceholder), true);
+    }
+
+    /**
+     * 通知某些tab的名称已经加载完成或者发生了变化，只重新绑定这些tab，不需要重新换行
+     *
+     * @param start 第一个tab的下标
+     * @param end   最后一个tab的下一个下标
+     */
+    public void notifyTabTitlesChanged(int start, int end) {
+        if (!(mTabNames instanceof LazyTabTitles)) {
+            return;
+        }
+        ((LazyTabTitles) mTabNames).invalidate(start, end);
+        int last = Math.min(end, mTabCount);
+        for (int i = Math.max(start, 0); i < last; i++) {
+            if (mRenderMode == RENDER_MODE_CANVAS) {
+                mTabTextRenderer.invalidate(i);
+            } else if (mTabTextList.get(i) != null) {
+                //virtualized模式下不可见的tab在显示时才获取名称
+                bindTabText(mTabTextList.get(i), i);
+            }
+        }
+        if (mRenderMode == RENDER_MODE_CANVAS) {
+            invalidate();
+        }
+    }
+
+    /**
+     * 设置按需获取tab名称时，名称还没有加载完成时显示的占位文字
+     *
+     * @param placeholder 占位文字
+     */
+    public void setTabTitlePlaceholder(CharSequence placeholder) {
+        mTabTitlePlaceholder = placeholder;
+    }
+
+    /**
+     * 使用TabModel设置tab，之后通过TabModel按id插入、移除、移动或者更新tab时只更新受影响的tab。
+     * 再调用{@link #updateTabNames(List)}等方法设置tab名称时会解除与TabModel的关联
+     *
+     * @param tabModel tab数据，为null时解除关联
+     */
+    public void setTabModel(@Nullable TabModel tabModel) {
+        detachTabModel();
+        if (tabModel == null) {
+            return;
+        }
+        mTabModel = tabModel;
+        tabModel.setObserver(mTabModelObserver);
+        updateTabNames(tabModel.getTitles(), true);
+    }
+
+    /**
+     * @return 当前关联的TabModel
+     */
+    @Nullable
+    public TabModel getTabModel() {
+        return mTabModel;
+    }
+
+    /**
+     * 设置tabText绑定数据的监听，可以在其中根据TabModel中的角标、图标等数据更新tabText
+     *
+     * @param onTabBindListener 绑定数据的监听
+     */
+    public void setOnTabBindListener(@Nullable OnTabBindListener onTabBindListener) {
+        mOnTabBindListener = onTabBindListener;
+    }
+
+    /**
+     * 解除与TabModel的关联
+     */
+    private void detachTabModel() {
+        if (mTabModel != null) {
+            mTabModel.setObserver(null);
+            mTabModel = null;
+            mSelectedId = TabModel.NO_ID;
+        }
+    }
+
+    /**
+     * TabModel中的数据发生了变化，只替换变化的名称，只测量和重新绑定变化的tab
+     *
+     * @param position      第一个发生变化的位置
+     * @param removedCount  移除的个数
+     * @param insertedCount 插入的个数
+     */
+    private void applyTabModelChange(int position, int removedCount, int insertedCount) {
+        int newCount = mTabModel.size();
+        if (mTabCount == 0 || mMultiLayoutWidth == 0 || newCount == 0 || isEmpty(mTabNames)
+                || mTabNames.size() != mTabCount || mTabCount - removedCount + insertedCount != newCount) {
+            updateTabNames(mTabModel.getTitles(), true);
+            return;
+        }
+        mUpdateGeneration++;
+        int oldSelectedIndex = mSelectedIndex;
+        //名称集合是TabModel创建的副本，直接替换变化的部分
+        List<CharSequence> titles = new ArrayList<>(insertedCount);
+        for (int i = position; i < position + insertedCount; i++) {
+            titles.add(mTabModel.getTitle(i));
+        }
+        mTabNames.subList(position, position + removedCount).clear();
+        mTabNames.addAll(position, titles);
+        shiftTabs(position, removedCount, position, insertedCount);
+        //按id重新找出选中的tab
+        retainSelection(null, oldSelectedIndex);
+        requestLayout();
+    }
+
+    /**
+     * 复制一份tabNames，保证下次更新时能与外部修改后的集合进行对比
+     *
+     * @param tabNames tab名称集合
+     * @return 复制后的集合
+     */
+    private List<CharSequence> copyTabNames(List<? extends CharSequence> tabNames) {
+        return tabNames == null ? null : new ArrayList<CharSequence>(tabNames);
+    }
+
+    /**
+     * 更新数据
+     *
+     * @param tabNames tab名称集合
+     * @param isUpdate true 更新tabText， false不更新
+     */
+    private void updateTabNames(List<CharSequence> tabNames, boolean isUpdate) {
+        //丢弃还未完成的后台计算结果
+        mUpdateGeneration++;
+        List<CharSequence> oldTabNames = mTabNames;
+        int oldSelectedIndex = mSelectedIndex;
+        mTabNames = tabNames;//tabs赋值
+        if (isUpdate) {
+            //已经有tab时只更新变化的部分
+            //按需获取名称时不能对比所有的名称
+            if (mTabCount > 0 && mMultiLayoutWidth != 0 && !isEmpty(tabNames)
+                    && !(tabNames instanceof LazyTabTitles) && !(oldTabNames instanceof LazyTabTitles)) {
+                if (!updateTabsIncrementally(oldTabNames)) {
+                    return;
+                }
+            } else {
+                updateTabs();
+            }
+        } else if (mMultiLayoutWidth != 0) {
+            //已经有宽度时测量时不会再创建tab，需要直接重新创建，否则设置的tab不会显示
+            updateTabs();
+        }
+        //如果新更新了tab，则需要重新测量和布局，布局后保持之前选中的tab
+        retainSelection(oldTabNames, oldSelectedIndex);
+        requestLayout();//请求测量和布局
+    }
+
+    /**
+     * 在后台线程中测量tab的宽度、计算换行并预先排版tab的文字，完成后在主线程中一次性更新tab，
+     * 主线程只需要添加tabText。在此期间再次更新tab时，之前的计算结果会被丢弃
+     *
+     * @param tabNames tab名称集合
+     */
+    public void updateTabNamesAsync(List<? extends CharSequence> tabNames) {
+        detachTabModel();
+        final int generation = ++mUpdateGeneration;
+        //canvas模式下不需要预先排版tabText的文字
+        PrecomputedTextCompat.Params textParams = mRenderMode == RENDER_MODE_CANVAS ? null : getTextMetricsParams();
+        int availableWidth = mMultiLayoutWidth == 0 ? 0 : getAvailableWidth();
+        final TabLayoutResult result = new TabLayoutResult(generation, copyTabNames(tabNames),
+                availableWidth, getTabWidthMeasurer(), mRowPacker.getStrategy(), textParams);
+        Executor executor = mBackgroundExecutor != null ? mBackgroundExecutor : TabLayoutResult.getDefaultExecutor();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                result.compute();
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        applyTabLayoutResult(result);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 设置{@link #updateTabNamesAsync(List)}使用的后台线程，默认所有MultiLayout共用一个低优先级的线程
+     *
+     * @param executor 后台线程，为null时使用默认的线程
+     */
+    public void setBackgroundExecutor(@Nullable Executor executor) {
+        mBackgroundExecutor = executor;
+    }
+
+    /**
+     * 在主线程中使用后台计算的结果更新tab
+     *
+     * @param result 后台计算的结果
+     */
+    private void applyTabLayoutResult(TabLayoutResult result) {
+        if (result.generation != mUpdateGeneration) {
+            MultiLayoutLog.d("discard expired tab layout result");
+            return;
+        }
+        List<CharSequence> oldTabNames = mTabNames;
+        int oldSelectedIndex = mSelectedIndex;
+        mTabNames = result.tabNames;
+        updateTabs(result);
+        retainSelection(oldTabNames, oldSelectedIndex);
+        requestLayout();
+    }
+
+    /**
+     * tab更新后找出之前选中的tab，在下次布局时重新选中。关联了ViewPager时跟随ViewPager当前的页面，
+     * 不会切换ViewPager的页面；否则按名称查找，找不到时选中原来的位置
+     *
+     * @param oldTabNames      更新前的tab名称集合
+     * @param oldSelectedIndex 更新前选中的tab下标
+     */
+    private void retainSelection(@Nullable List<CharSequence> oldTabNames, int oldSelectedIndex) {
+        retainSelection(oldTabNames, oldSelectedIndex, false);
+    }
+
+    /**
+     * tab更新后找出之前选中的tab，在下次布局时重新选中
+     *
+     * @param oldTabNames      更新前的tab名称集合
+     * @param oldSelectedIndex 更新前选中的tab下标，isSameTab为true时是选中的tab更新后的下标
+     * @param isSameTab        oldSelectedIndex是否一定还是原来选中的tab，按需获取名称时无法按名称判断
+     */
+    private void retainSelection(@Nullable List<CharSequence> oldTabNames, int oldSelectedIndex, boolean isSameTab) {
+        isOnce = false;
+        mSilentSelection = false;
+        if (mPendingSelectedIndex >= 0) {
+            //已经通过setSelectedIndex设置了需要选中的tab
+            return;
+        }
+        int index = findRetainedIndex(oldTabNames, oldSelectedIndex);
+        if (index < 0) {
+            return;
+        }
+        mPendingSelectedIndex = index;
+        //选中的还是原来的tab时不再回调OnTabSelectListener
+        if (mTabModel != null && mSelectedId != TabModel.NO_ID) {
+            //按id判断，位置变化后仍然是原来的tab
+            mSilentSelection = mTabModel.getId(index) == mSelectedId;
+        } else if (index != oldSelectedIndex) {
+            mSilentSelection = false;
+        } else if (isSameTab) {
+            mSilentSelection = true;
+        } else if (!(mTabNames instanceof LazyTabTitles)) {
+            mSilentSelection = oldTabNames != null && oldSelectedIndex < oldTabNames.size()
+                    && TextUtils.equals(oldTabNames.get(oldSelectedIndex), mTabNames.get(index));
+        }
+    }
+
+    /**
+     * 找出tab更新后需要选中的tab
+     *
+     * @param oldTabNames      更新前的tab名称集合
+     * @param oldSelectedIndex 更新前选中的tab下标
+     * @return 需要选中的tab下标，没有时返回-1
+     */
+    private int findRetainedIndex(@Nullable List<CharSequence> oldTabNames, int oldSelectedIndex) {
+        //还没有宽度时tab没有更新，mTabCount可能与新的名称集合不一致
+        int tabCount = isEmpty(mTabNames) ? 0 : Math.min(mTabCount, mTabNames.size());
+        if (tabCount == 0) {
+            return -1;
+        }
+        if (mViewPager != null && mViewPager.getAdapter() != null) {
+            //ViewPager在数据变化时已经更新了当前的页面
+            int currentItem = mViewPager.getCurrentItem();
+            return currentItem < tabCount ? currentItem : -1;
+        }
+        if (mTabModel != null && mSelectedId != TabModel.NO_ID) {
+            //按id查找，名称变化或者位置移动后仍然能找到
+            int index = mTabModel.indexOfId(mSelectedId);
+            if (index >= 0 && index < tabCount) {
+                return index;
+            }
+            if (oldTabNames == null) {
+                //TabModel中选中的tab被移除，选中原来的位置
+                return Math.min(oldSelectedIndex, tabCount - 1);
+            }
+        }
+        if (oldSelectedIndex >= 0 && (mTabNames instanceof LazyTabTitles || oldTabNames instanceof LazyTabTitles)) {
+            //按需获取名称时不按名称查找，避免获取所有的名称
+            return Math.min(oldSelectedIndex, tabCount - 1);
+        }
+        if (oldTabNames == null || oldSelectedIndex < 0 || oldSelectedIndex >= oldTabNames.size()) {
+            return -1;
+        }
+        CharSequence selectedName = oldTabNames.get(oldSelectedIndex);
+        if (oldSelectedIndex < tabCount && TextUtils.equals(selectedName, mTabNames.get(oldSelectedIndex))) {
+            return oldSelectedIndex;
+        }
+        for (int i = 0; i < tabCount; i++) {
+            if (TextUtils.equals(selectedName, mTabNames.get(i))) {
+                return i;
+            }
+        }
+        return Math.min(oldSelectedIndex, tabCount - 1);
+    }
+
+    /**
+     * 获取tabText的文字排版参数，所有的tabText设置都一样，所以只需要获取一次
+     *
+     * @return 文字排版参数
+     */
+    private PrecomputedTextCompat.Params getTextMetricsParams() {
+        if (mTextMetricsParams == null) {
+            mTextMetricsParams = TextViewCompat.getTextMetricsParams(createTabText());
+        }
+        return mTextMetricsParams;
+    }
+
+    /**
+     * 设置tabText复用池最多缓存的个数
+     *
+     * @param maxSize 最多缓存的个数
+     */
+    public void setTabViewPoolMaxSize(int maxSize) {
+        mTabViewPool.setMaxSize(maxSize);
+    }
+
+    /**
+     * 获取tabText复用池当前缓存的个数
+     *
+     * @return 缓存的个数
+     */
+    public int getTabViewPoolSize() {
+        return mTabViewPool.size();
+    }
+
+    /**
+     * 获取从tabText复用池中获取成功的次数
+     *
+     * @return 复用成功的次数
+     */
+    public int getTabViewPoolHitCount() {
+        return mTabViewPool.getHitCount();
+    }
+
+    /**
+     * 获取从tabText复用池中获取失败（需要新创建tabText）的次数
+     *
+     * @return 复用失败的次数
+     */
+    public int getTabViewPoolMissCount() {
+        return mTabViewPool.getMissCount();
+    }
+
+    /**
+     * 设置性能数据的监听，每次重新创建tab、测量、布局、绘制以及选中tab后回调，
+     * 同时在systrace/Perfetto中添加对应的Trace区间。为null时不统计，没有额外的开销
+     *
+     * @param onMetricsListener 性能数据的监听
+     */
+    public void setOnMetricsListener(@Nullable OnMetricsListener onMetricsListener) {
+        mOnMetricsListener = onMetricsListener;
+    }
+
+    /**
+     * 开始统计一个阶段的性能数据
+     *
+     * @param sectionName Trace区间的名称
+     * @return 开始的时间，没有监听时为0
+     */
+    private long beginMetrics(String sectionName) {
+        if (mOnMetricsListener == null) {
+            return 0;
+        }
+        TraceCompat.beginSection(sectionName);
+        return System.nanoTime();
+    }
+
+    /**
+     * 结束统计一个阶段的性能数据并回调
+     *
+     * @param event    阶段，{@link #METRICS_UPDATE_TABS}等
+     * @param start    开始的时间
+     * @param created  开始时创建的tabText个数
+     * @param recycled 开始时放入复用池的tabText个数
+     */
+    private void endMetrics(int event, long start, int created, int recycled) {
+        long elapsed = System.nanoTime() - start;
+        TraceCompat.endSection();
+        if (mOnMetricsListener != null) {
+            mOnMetricsListener.onMetrics(event, mTabCount, mRowPacker.getRowCount(), elapsed,
+                    mCreatedViewCount - created, mRecycledViewCount - recycled);
+        }
+    }
+
+    /**
+     * 导出当前的排版结果（每个tab的宽度、换行以及每一行的间隔，indicator的位置由此直接计算）为二进制快照。
+     * 快照的key由tab名称、可用宽度、文字大小、tab宽度设置、换行策略以及系统版本计算，
+     * 下次启动时通过{@link #importLayoutSnapshot(File)}导入，条件一致时不再测量文字和换行
+     *
+     * @param out 输出流，不会关闭
+     * @return true 导出成功，false 还没有排版或者使用了按需获取的tab名称
+     * @throws IOException 写入失败
+     */
+    public boolean exportLayoutSnapshot(@NonNull OutputStream out) throws IOException {
+        if (mTabCount == 0 || mRowPacker.getRowCount() == 0 || mRowPacker.getTabCount() != mTabCount
+                || mTabNames instanceof LazyTabTitles) {
+            return false;
+        }
+        new TabLayoutSnapshot(computeLayoutSnapshotKey(), mTabCount, mTabWidths, mRowPacker).writeTo(out);
+        return true;
+    }
+
+    /**
+     * 导出当前的排版结果到文件中，建议使用应用的私有目录
+     *
+     * @param file 快照文件
+     * @return true 导出成功，false 还没有排版或者使用了按需获取的tab名称
+     * @throws IOException 写入失败
+     * @see #exportLayoutSnapshot(OutputStream)
+     */
+    public boolean exportLayoutSnapshot(@NonNull File file) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            return exportLayoutSnapshot(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * 导入排版快照，需要在设置tab名称之前调用。创建tab时如果快照的key与当前的条件一致，
+     * 直接使用快照中的宽度和换行结果，否则正常测量和换行
+     *
+     * @param in 输入流，不会关闭
+     * @return true 导入成功，false 快照格式不正确
+     * @throws IOException 读取失败
+     */
+    public boolean importLayoutSnapshot(@NonNull InputStream in) throws IOException {
+        mLayoutSnapshot = TabLayoutSnapshot.read(in);
+        return mLayoutSnapshot != null;
+    }
+
+    /**
+     * 使用内存映射导入文件中的排版快照，不需要将整个文件读入内存
+     *
+     * @param file 快照文件
+     * @return true 导入成功，false 快照格式不正确
+     * @throws IOException 读取失败
+     * @see #importLayoutSnapshot(InputStream)
+     */
+    public boolean importLayoutSnapshot(@NonNull File file) throws IOException {
+        mLayoutSnapshot = TabLayoutSnapshot.read(file);
+        return mLayoutSnapshot != null;
+    }
+
+    /**
+     * 计算当前排版条件的key，影响tab宽度和换行的条件都需要加入
+     *
+     * @return key
+     */
+    private long computeLayoutSnapshotKey() {
+        long hash = TabLayoutSnapshot.HASH_SEED;
+        hash = TabLayoutSnapshot.hash(hash, mTabCount);
+        for (int i = 0; i < mTabCount; i++) {
+            hash = TabLayoutSnapshot.hash(hash, mTabNames.get(i));
+            //图标会影响wrap_content模式下tab的宽度
+            hash = TabLayoutSnapshot.hash(hash, getTabIconWidth(i));
+        }
+        hash = TabLayoutSnapshot.hash(hash, getAvailableWidth());
+        //文字大小按sp计算，需要考虑系统的字体缩放
+        hash = TabLayoutSnapshot.hash(hash,
+                Float.floatToIntBits(mTabTextSize * getResources().getDisplayMetrics().scaledDensity));
+        hash = TabLayoutSnapshot.hash(hash, mTabWidthMode);
+        hash = TabLayoutSnapshot.hash(hash, Float.floatToIntBits(mTabWidth));
+        hash = TabLayoutSnapshot.hash(hash, Float.floatToIntBits(mTabMinWidth));
+        hash = TabLayoutSnapshot.hash(hash, Float.floatToIntBits(mTabMaxWidth));
+        hash = TabLayoutSnapshot.hash(hash, Float.floatToIntBits(mTabHorizontalPadding));
+        hash = TabLayoutSnapshot.hash(hash, mRowPacker.getStrategy());
+        //系统字体随系统版本变化
+        return TabLayoutSnapshot.hash(hash, Build.FINGERPRINT);
+    }
+
+    /**
+     * 创建tab时使用导入的快照
+     *
+     * @return true 快照与当前的条件一致，已经使用，false 需要重新测量和换行
+     */
+    private boolean applyLayoutSnapshot() {
+        TabLayoutSnapshot snapshot = mLayoutSnapshot;
+        if (snapshot == null || snapshot.tabCount != mTabCount || mTabNames instanceof LazyTabTitles
+                || snapshot.rowPacker.getStrategy() != mRowPacker.getStrategy()
+                || snapshot.key != computeLayoutSnapshotKey()) {
+            return false;
+        }
+        MultiLayoutLog.d("use layout snapshot");
+        //复制一份，快照可以在宽度或者名称变回来时再次使用
+        mTabWidths = Arrays.copyOf(snapshot.widths, mTabCount);
+        int rowCount = snapshot.rowPacker.getRowCount();
+        mRowPacker.restore(mTabCount, rowCount, snapshot.rowPacker.getRowStarts(), snapshot.rowPacker.getRowMargins());
+        mTabMinMargin = mRowPacker.getMinMargin();
+        updateTabPositions(0);
+        return true;
+    }
+
+    /**
+     * 设置是否打印调试日志，默认只在debug包中打印。开启混淆的release包中日志会被直接移除，设置无效
+     *
+     * @param enabled true 打印日志
+     */
+    public static void setDebugLogEnabled(boolean enabled) {
+        MultiLayoutLog.setEnabled(enabled);
+    }
+
+    /**
+     * 设置tab文字宽度缓存最多缓存的文字个数，文字大小相同的MultiLayout共用一个缓存
+     *
+     * @param maxSize 最多缓存的文字个数
+     */
+    public void setTextWidthCacheMaxSize(int maxSize) {
+        mTextWidthCache.setMaxSize(maxSize);
+    }
+
+    /**
+     * 获取tab文字宽度缓存当前缓存的文字个数
+     *
+     * @return 缓存的文字个数
+     */
+    public int getTextWidthCacheSize() {
+        return mTextWidthCache.size();
+    }
+
+    /**
+     * 获取tab文字宽度缓存的命中率
+     *
+     * @return 命中率，0~1
+     */
+    public float getTextWidthCacheHitRate() {
+        return mTextWidthCache.getHitRate();
+    }
+
+    /**
+     * 估算tab文字宽度缓存占用的内存大小
+     *
+     * @return 字节数
+     */
+    public long getTextWidthCacheMemorySize() {
+        return mTextWidthCache.getMemorySize();
+    }
+
+    /**
+     * 获取tabText之间的距离
+     *
+     * @return tabText之间的距离值
+     */
+    public float getTabMinMargin() {
+        return mTabMinMargin;
+    }
+
+    /**
+     * 根据tabNames中的数据去更新view
+     */
+    private void updateTabs() {
+        updateTabs(null);
+    }
+
+    /**
+     * 根据tabNames中的数据去更新view
+     *
+     * @param result 后台计算的结果，为null时在当前线程中计算
+     */
+    private void updateTabs(@Nullable TabLayoutResult result) {
+        long start = beginMetrics("MultiLayout.updateTabs");
+        int created = mCreatedViewCount;
+        int recycled = mRecycledViewCount;
+        try {
+            rebuildTabs(result);
+        } finally {
+            if (start != 0) {
+                endMetrics(METRICS_UPDATE_TABS, start, created, recycled);
+            }
+        }
+    }
+
+    /**
+     * 移除所有的tabText并根据tabNames重新创建
+     *
+     * @param result 后台计算的结果，为null时在当前线程中计算
+     */
+    private void rebuildTabs(@Nullable TabLayoutResult result) {
+        MultiLayoutLog.d("update Tabs...");
+        if (mMultiLayoutWidth == 0) {
+            MultiLayoutLog.d("mMultiLayoutWidth is 0");
+            return;
+        }
+
+        removeAllViewsInLayout();
+        invalidate();
+        //移除的tabText放入复用池中
+        recycleTabTexts(0);
+        resetBoundRows();
+        mRowPacker.clear();
+        mTabCount = 0;
+        mSelectedIndex = -1;
+
+        if (isEmpty(mTabNames)) {
+            MultiLayoutLog.d("mTabName is empty");
+            return;
+        }
+
+        int tabCount = mTabNames.size();
+        mTabCount = tabCount;
+        boolean isCanvasMode = mRenderMode == RENDER_MODE_CANVAS;
+        //tabText集合重复使用，之前的tabText已经全部放入复用池中
+        if (mTabTextList == null) {
+            mTabTextList = new ArrayList<>(isCanvasMode ? 0 : tabCount);
+        }
+        //先计算宽度和换行，创建tabText时直接按tab的宽度测量
+        if (result != null && result.rowPacker != null && result.availableWidth == getAvailableWidth()
+                && result.rowPacker.getStrategy() == mRowPacker.getStrategy()) {
+            //直接使用后台计算好的宽度和换行
+            mTabWidths = result.widths;
+            mRowPacker = result.rowPacker;
+            mTabMinMargin = mRowPacker.getMinMargin();
+            updateTabPositions(0);
+        } else if (!applyLayoutSnapshot()) {
+            measureTabWidths(0);
+            wrapRows(0);
+        }
+        if (isCanvasMode) {
+            //canvas模式下不创建TextView
+            mTabTextRenderer.reset(tabCount);
+        } else {
+            //遍历mTabNames，创建TextView并直接添加到当前控件中
+            addTabTexts(0, tabCount, result == null ? null : result.precomputedTexts);
+        }
+        MultiLayoutLog.d("rowCount: ", mRowPacker.getRowCount());
+    }
+
+    /**
+     * 对比新旧tabNames，只更新发生变化的tab，并且只对第一个变化的tab所在行及之后的行重新换行
+     *
+     * @param oldTabNames 更新前的tab名称集合
+     * @return true 有tab发生了变化，false 没有变化
+     */
+    private boolean updateTabsIncrementally(@NonNull List<CharSequence> oldTabNames) {
+        int oldCount = mTabCount;
+        int newCount = mTabNames.size();
+        int commonCount = Math.min(oldCount, newCount);
+        //找出第一个发生变化的位置
+        int first = 0;
+        while (first < commonCount && TextUtils.equals(oldTabNames.get(first), mTabNames.get(first))) {
+            first++;
+        }
+        if (first == commonCount && oldCount == newCount) {
+            MultiLayoutLog.d("tabNames not changed");
+            return false;
+        }
+        updateTabsFrom(first, oldTabNames);
+        return true;
+    }
+
+    /**
+     * 从某个位置开始更新tab，之前的tab和行保持不变
+     *
+     * @param first       第一个发生变化的位置
+     * @param oldTabNames 更新前的tab名称集合，名称没有变化的tab不重新绑定；为null时重新绑定之后所有的tab
+     */
+    private void updateTabsFrom(int first, @Nullable List<CharSequence> oldTabNames) {
+        int oldCount = mTabCount;
+        int newCount = mTabNames.size();
+        int commonCount = Math.min(oldCount, newCount);
+        boolean isCanvasMode = mRenderMode == RENDER_MODE_CANVAS;
+        //收起或者分批创建时已经创建的tabText都在前面的行中，保留并只重新绑定变化的tab
+        boolean keepBoundTabs = isVirtualizedViewMode() && !mVirtualized;
+        int lastBoundTab = keepBoundTabs ? getLastBoundTab() : -1;
+        if (isVirtualizedViewMode() && mVirtualized) {
+            //换行后可见的行号会发生变化，先回收所有可见的tabText，布局时重新从复用池中获取
+            unbindRows(mBoundFirstRow, mBoundLastRow);
+            resetBoundRows();
+        }
+        mTabCount = newCount;
+        //先计算宽度和换行，新的tabText直接按tab的宽度测量。第一个变化的tab之前的宽度和行不受影响
+        measureTabWidths(first);
+        wrapRows(mRowPacker.findRepackRow(first));
+        MultiLayoutLog.d("rowCount: ", mRowPacker.getRowCount());
+
+        //名称变化的tab只重新设置文字，不重新创建
+        for (int i = first; i < commonCount; i++) {
+            if (oldTabNames != null && TextUtils.equals(oldTabNames.get(i), mTabNames.get(i))) {
+                continue;
+            }
+            if (isCanvasMode) {
+                mTabTextRenderer.invalidate(i);
+            } else if (mTabTextList.get(i) != null) {
+                bindTabText(mTabTextList.get(i), i);
+            }
+        }
+
+        //移除多余的tab或者添加新的tab
+        if (isCanvasMode) {
+            mTabTextRenderer.resize(newCount);
+        } else if (newCount < oldCount) {
+            recycleTabTexts(newCount);
+        } else {
+            addTabTexts(oldCount, newCount, null);
+        }
+        if (mSelectedIndex >= newCount) {
+            mSelectedIndex = -1;
+        }
+        if (keepBoundTabs) {
+            keepBoundTabs(lastBoundTab);
+        }
+        invalidate();
+    }
+
+    /**
+     * 移除和插入若干个tab，先移除再插入，只测量插入的tab，从第一个受影响的行开始重新换行。
+     * 在同一位置移除又插入的tab直接重新绑定已有的tabText
+     *
+     * @param removeStart 第一个移除的位置
+     * @param removeCount 移除的个数
+     * @param insertStart 第一个插入的位置，是移除之后的位置
+     * @param insertCount 插入的个数
+     */
+    private void shiftTabs(int removeStart, int removeCount, int insertStart, int insertCount) {
+        int first = Math.min(removeStart, insertStart);
+        int insertEnd = insertStart + insertCount;
+        //收起或者分批创建时已经创建的tabText都在前面的行中，保留并只处理变化的tab
+        boolean keepBoundTabs = isVirtualizedViewMode() && !mVirtualized;
+        int lastBoundTab = keepBoundTabs ? getLastBoundTab() : -1;
+        if (isVirtualizedViewMode() && mVirtualized) {
+            //换行后可见的行号会发生变化，先回收所有可见的tabText，布局时重新从复用池中获取
+            unbindRows(mBoundFirstRow, mBoundLastRow);
+            resetBoundRows();
+        }
+        //之后的tab的宽度跟随移动，只测量插入的tab
+        shiftTabWidths(removeStart, removeCount, 0, mTabCount);
+        shiftTabWidths(insertStart, 0, insertCount, mTabCount - removeCount);
+        mTabCount = mTabNames.size();
+        measureTabWidths(insertStart, insertEnd);
+        //同一位置移除又插入的tab重新绑定，不需要回收再创建
+        int rebindCount = removeStart == insertStart ? Math.min(removeCount, insertCount) : 0;
+        removeStart += rebindCount;
+        removeCount -= rebindCount;
+        int rebindEnd = insertStart + rebindCount;
+        boolean isCanvasMode = mRenderMode == RENDER_MODE_CANVAS;
+        if (isCanvasMode) {
+            //之后的tab缓存的Layout跟随移动
+            mTabTextRenderer.shift(removeStart, removeCount, 0);
+            mTabTextRenderer.shift(rebindEnd, 0, insertEnd - rebindEnd);
+            for (int i = insertStart; i < rebindEnd; i++) {
+                mTabTextRenderer.invalidate(i);
+            }
+        } else {
+            for (int i = removeStart + removeCount - 1; i >= removeStart; i--) {
+                TextView tabText = mTabTextList.remove(i);
+                if (tabText != null) {
+                    removeViewInLayout(tabText);
+                    mTabViewPool.release(tabText);
+                    mRecycledViewCount++;
+                }
+            }
+            if (lastBoundTab >= removeStart) {
+                lastBoundTab = Math.max(lastBoundTab - removeCount, removeStart - 1);
+            }
+            //先占位，换行后再创建
+            for (int i = rebindEnd; i < insertEnd; i++) {
+                mTabTextList.add(rebindEnd, null);
+            }
+            if (lastBoundTab >= rebindEnd) {
+                lastBoundTab += insertEnd - rebindEnd;
+            }
+        }
+        if (mSelectedIndex >= mTabCount) {
+            mSelectedIndex = -1;
+        }
+        wrapRows(mRowPacker.findRepackRow(first));
+        MultiLayoutLog.d("rowCount: ", mRowPacker.getRowCount());
+        if (isCanvasMode) {
+            invalidate();
+            return;
+        }
+        for (int i = insertStart; i < rebindEnd; i++) {
+            TextView tabText = mTabTextList.get(i);
+            if (tabText != null) {
+                bindTabText(tabText, i);
+                //宽度可能发生了变化
+                measureTabText(tabText);
+            }
+        }
+        //插入的tab在需要创建tabText的范围中时才创建
+        int bindEnd = isVirtualizedViewMode() ? Math.min(insertEnd, lastBoundTab + 1) : insertEnd;
+        for (int i = rebindEnd; i < bindEnd; i++) {
+            TextView tabText = newTabText(i);
+            tabText.setSelected(false);
+            mTabTextList.set(i, tabText);
+            measureTabText(tabText);
+            addViewInLayout(tabText, -1, tabText.getLayoutParams(), true);
+        }
+        //位置变化的tabText只更新下标
+        int last = removeCount == insertEnd - rebindEnd ? Math.max(removeStart + removeCount, insertEnd) : mTabCount;
+        for (int i = first; i < last; i++) {
+            TextView tabText = mTabTextList.get(i);
+            if (tabText != null && (i < insertStart || i >= insertEnd)) {
+                tabText.setTag(R.id.multi_layout_tab_index, i);
+            }
+        }
+        if (keepBoundTabs) {
+            keepBoundTabs(lastBoundTab);
+        }
+        invalidate();
+    }
+
+    /**
+     * 在某个位置移除或者插入tab的宽度，之后的宽度跟随移动
+     *
+     * @param position      移除或者插入的位置
+     * @param removedCount  移除的个数
+     * @param insertedCount 插入的个数
+     * @param count         移除或者插入之前tab的个数
+     */
+    private void shiftTabWidths(int position, int removedCount, int insertedCount, int count) {
+        int newCount = count - removedCount + insertedCount;
+        if (mTabWidths.length < newCount) {
+            mTabWidths = Arrays.copyOf(mTabWidths, Math.max(newCount, mTabWidths.length * 2));
+        }
+        System.arraycopy(mTabWidths, position + removedCount, mTabWidths, position + insertedCount,
+                count - position - removedCount);
+    }
+
+    /**
+     * 创建tabText并添加到当前控件中
+     *
+     * @param start            第一个tab的下标
+     * @param end              最后一个tab的下一个下标
+     * @param precomputedTexts 预先排版好的tab文字，可以为null
+     */
+    private void addTabTexts(int start, int end, @Nullable PrecomputedTextCompat[] precomputedTexts) {
+        for (int i = start; i < end; i++) {
+            if (isVirtualizedViewMode()) {
+                //virtualized模式下只占位，布局时再为可见的行创建tabText
+                mTabTextList.add(null);
+                continue;
+            }
+            TextView tabText = newTabText(i);
+            if (precomputedTexts != null) {
+                //使用预先排版好的文字，测量时不需要再排版
+                TextViewCompat.setPrecomputedText(tabText, precomputedTexts[i]);
+            }
+            mTabTextList.add(tabText);
+            //测量控件
+            measureTabText(tabText);
+            //可能在测量时添加，不再请求布局，由调用处统一请求布局
+            addViewInLayout(tabText, -1, tabText.getLayoutParams(), true);
+        }
+    }
+
+    /**
+     * 将tabText从集合和当前控件中移除并放入复用池中
+     *
+     * @param start 第一个需要移除的tabText的下标
+     */
+    private void recycleTabTexts(int start) {
+        if (isEmpty(mTabTextList)) {
+            return;
+        }
+        for (int i = mTabTextList.size() - 1; i >= start; i--) {
+            TextView tabText = mTabTextList.remove(i);
+            if (tabText == null) {
+                continue;
+            }
+            if (tabText.getParent() == this) {
+                removeViewInLayout(tabText);
+            }
+            mTabViewPool.release(tabText);
+            mRecycledViewCount++;
+        }
+    }
+
+    /**
+     * 是否为只创建部分行的tabText的模式：只创建可见的行、收起时只创建显示的行或者分批创建，
+     * canvas模式下本身只绘制可见的行
+     *
+     * @return true 是，false 不是
+     */
+    private boolean isVirtualizedViewMode() {
+        return (mVirtualized || mMaxVisibleRows > 0 || mProgressiveBuild) && mRenderMode == RENDER_MODE_VIEW;
+    }
+
+    /**
+     * 清空已经创建了tabText的行的记录
+     */
+    private void resetBoundRows() {
+        mBoundFirstRow = 0;
+        mBoundLastRow = -1;
+    }
+
+    /**
+     * virtualized模式下，为可见区域中的行创建tabText，回收移出可见区域的行中的tabText，
+     * 每次只处理变化的行
+     */
+    private void bindVisibleRows() {
+        if (!isVirtualizedViewMode() || mRowPacker.getRowCount() == 0 || isEmpty(mTabTextList)) {
+            return;
+        }
+        int firstRow = 0;
+        //收起时只创建显示的行
+        int lastRow = getShownRowCount() - 1;
+        //getLocalVisibleRect会考虑所有父控件的滚动和裁剪
+        if (mVirtualized && getLocalVisibleRect(mVisibleRect)) {
+            firstRow = (int) ((mVisibleRect.top - getPaddingTop()) / mTabHeight) - VIRTUALIZED_EXTRA_ROWS;
+            firstRow = Math.max(firstRow, 0);
+            lastRow = Math.min(lastRow,
+                    (int) ((mVisibleRect.bottom - getPaddingTop()) / mTabHeight) + VIRTUALIZED_EXTRA_ROWS);
+        } else if (mVirtualized) {
+            lastRow = -1;
+        } else if (isProgressiveBuilding()) {
+            //先只创建首屏可见的行，已经创建的行保留，其余的行在空闲时创建
+            int visibleLastRow = -1;
+            if (getLocalVisibleRect(mVisibleRect)) {
+                visibleLastRow = (int) ((mVisibleRect.bottom - getPaddingTop()) / mTabHeight);
+            }
+            int shownLastRow = lastRow;
+            lastRow = Math.min(lastRow, Math.max(mBoundLastRow, visibleLastRow));
+            if (lastRow < shownLastRow) {
+                scheduleProgressiveBuild();
+            }
+        }
+        if (firstRow == mBoundFirstRow && lastRow == mBoundLastRow) {
+            return;
+        }
+        //回收移出可见区域的行
+        unbindRows(mBoundFirstRow, Math.min(mBoundLastRow, firstRow - 1));
+        unbindRows(Math.max(mBoundFirstRow, lastRow + 1), mBoundLastRow);
+        //为新进入可见区域的行创建tabText
+        for (int row = firstRow; row <= lastRow; row++) {
+            if (row < mBoundFirstRow || row > mBoundLastRow) {
+                bindRow(row);
+            }
+        }
+        mBoundFirstRow = firstRow;
+        mBoundLastRow = lastRow;
+        invalidate();
+    }
+
+    /**
+     * 是否为分批创建tabText的模式，只创建可见的行时不需要分批创建
+     *
+     * @return true 是，false 不是
+     */
+    private boolean isProgressiveBuilding() {
+        return mProgressiveBuild && !mVirtualized && mRenderMode == RENDER_MODE_VIEW;
+    }
+
+    /**
+     * 在主线程空闲时分批创建剩余的行
+     */
+    private void scheduleProgressiveBuild() {
+        if (!mProgressiveBuildScheduled) {
+            mProgressiveBuildScheduled = true;
+            Looper.myQueue().addIdleHandler(mProgressiveBuildHandler);
+        }
+    }
+
+    /**
+     * 接着已经创建的行继续创建tabText，超出一批的耗时后停止
+     *
+     * @return true 还有没有创建的行，false 已经全部创建
+     */
+    private boolean bindPendingRows() {
+        if (!isProgressiveBuilding() || isEmpty(mTabTextList) || mRowPacker.getRowCount() == 0) {
+            return false;
+        }
+        int shownLastRow = getShownRowCount() - 1;
+        if (mBoundLastRow >= shownLastRow) {
+            return false;
+        }
+        long start = beginMetrics("MultiLayout.progressiveBuild");
+        int created = mCreatedViewCount;
+        int recycled = mRecycledViewCount;
+        try {
+            long deadline = System.nanoTime() + PROGRESSIVE_BUILD_BUDGET_NANOS;
+            //每一批至少创建一行
+            do {
+                bindRow(++mBoundLastRow);
+            } while (mBoundLastRow < shownLastRow && System.nanoTime() < deadline);
+            invalidate();
+        } finally {
+            if (start != 0) {
+                endMetrics(METRICS_PROGRESSIVE_BUILD, start, created, recycled);
+            }
+        }
+        return mBoundLastRow < shownLastRow;
+    }
+
+    /**
+     * 为一行创建tabText，不会请求重新布局，直接测量和摆放
+     *
+     * @param row 行号
+     */
+    private void bindRow(int row) {
+        int end = mRowPacker.getRowEnd(row);
+        for (int i = mRowPacker.getRowStart(row); i < end; i++) {
+            if (mTabTextList.get(i) != null) {
+                continue;
+            }
+            TextView tabText = newTabText(i);
+            tabText.setSelected(i == mSelectedIndex);
+            mTabTextList.set(i, tabText);
+            addViewInLayout(tabText, -1, tabText.getLayoutParams(), true);
+            measureTabText(tabText);
+            layoutTabText(tabText, i, row);
+        }
+    }
+
+    /**
+     * 回收若干行中的tabText
+     *
+     * @param firstRow 第一行
+     * @param lastRow  最后一行
+     */
+    private void unbindRows(int firstRow, int lastRow) {
+        for (int row = firstRow; row <= lastRow; row++) {
+            int end = mRowPacker.getRowEnd(row);
+            for (int i = mRowPacker.getRowStart(row); i < end; i++) {
+                TextView tabText = mTabTextList.get(i);
+                if (tabText == null) {
+                    continue;
+                }
+                removeViewInLayout(tabText);
+                mTabViewPool.release(tabText);
+                mRecycledViewCount++;
+                mTabTextList.set(i, null);
+            }
+        }
+    }
+
+    /**
+     * 设置是否先只创建首屏可见的行的tabText，其余的行在主线程空闲时分批创建，每一批不超过4ms，
+     * 首帧的耗时与tab的个数无关。只对{@link #RENDER_MODE_VIEW}模式有效，virtualized模式下本身只创建可见的行
+     *
+     * @param progressiveBuild true 分批创建，false 一次创建所有的tabText
+     */
+    public void setProgressiveBuild(boolean progressiveBuild) {
+        if (mProgressiveBuild == progressiveBuild) {
+            return;
+        }
+        mProgressiveBuild = progressiveBuild;
+        int oldSelectedIndex = mSelectedIndex;
+        updateTabs();
+        retainSelection(mTabNames, oldSelectedIndex);
+        requestLayout();
+    }
+
+    /**
+     * 是否先只创建首屏可见的行
+     *
+     * @return true 是，false 不是
+     */
+    public boolean isProgressiveBuild() {
+        return mProgressiveBuild;
+    }
+
+    /**
+     * 设置是否只为可见区域中的行创建tabText，适用于放在ScrollView等滚动控件中的大量tab，
+     * 只对{@link #RENDER_MODE_VIEW}模式有效
+     *
+     * @param virtualized true 只创建可见的tabText，false 创建所有的tabText
+     */
+    public void setVirtualized(boolean virtualized) {
+        if (mVirtualized == virtualized) {
+            return;
+        }
+        mVirtualized = virtualized;
+        int oldSelectedIndex = mSelectedIndex;
+        updateTabs();
+        retainSelection(mTabNames, oldSelectedIndex);
+        requestLayout();
+    }
+
+    /**
+     * 是否只为可见区域中的行创建tabText
+     *
+     * @return true 是，false 不是
+     */
+    public boolean isVirtualized() {
+        return mVirtualized;
+    }
+
+    /**
+     * 从某一行开始重新计算每一行的起始位置，之前的行保持不变
+     *
+     * @param fromRow 开始计算的行
+     */
+    private void wrapRows(int fromRow) {
+        if (mRowPacker.getStrategy() == RowPacker.STRATEGY_BALANCED) {
+            //平衡换行时后面的tab会影响前面的行，总是从第一行开始
+            fromRow = 0;
+        }
+        mRowPacker.pack(mTabWidths, mTabCount, getAvailableWidth(), 0, fromRow);
+        mTabMinMargin = mRowPacker.getMinMargin();
+        updateTabPositions(fromRow);
+    }
+
+    /**
+     * 根据换行结果记录每个tab所在的行和列，以及所在行中之前的tab宽度之和，摆放时不需要再遍历之前的tab
+     *
+     * @param fromRow 开始记录的行
+     */
+    private void updateTabPositions(int fromRow) {
+        if (mTabRows.length < mTabCount) {
+            mTabRows = Arrays.copyOf(mTabRows, mTabCount);
+            mTabColumns = Arrays.copyOf(mTabColumns, mTabCount);
+            mTabOffsets = Arrays.copyOf(mTabOffsets, mTabCount);
+        }
+        int rowCount = mRowPacker.getRowCount();
+        for (int row = fromRow; row < rowCount; row++) {
+            int start = mRowPacker.getRowStart(row);
+            int end = mRowPacker.getRowEnd(row);
+            float offset = 0;
+            for (int i = start; i < end; i++) {
+                mTabRows[i] = row;
+                mTabColumns[i] = i - start;
+                mTabOffsets[i] = offset;
+                offset += getTabWidthAt(i);
+            }
+        }
+    }
+
+    /**
+     * 获取tab所在的行
+     *
+     * @param index tab的下标
+     * @return 行号，从0开始
+     * @throws IndexOutOfBoundsException 下标超出了tab的个数
+     */
+    public int getTabRow(int index) {
+        checkTabIndex(index);
+        return mTabRows[index];
+    }
+
+    /**
+     * 获取tab在所在行中的列，与{@link OnTabSelectListener#select(TextView, int, int)}中的position一致
+     *
+     * @param index tab的下标
+     * @return 列号，从0开始
+     * @throws IndexOutOfBoundsException 下标超出了tab的个数
+     */
+    public int getTabColumn(int index) {
+        checkTabIndex(index);
+        return mTabColumns[index];
+    }
+
+    /**
+     * 检查tab的下标，记录行和列的数组不会缩小，超出tab个数的部分是之前的数据
+     *
+     * @param index tab的下标
+     */
+    private void checkTabIndex(int index) {
+        if (index < 0 || index >= mTabCount) {
+            throw new IndexOutOfBoundsException("index: " + index + ", tabCount: " + mTabCount);
+        }
+    }
+
+    /**
+     * 获取换行时的可用宽度
+     *
+     * @return 当前控件的宽度去掉左右的padding
+     */
+    private int getAvailableWidth() {
+        return mMultiLayoutWidth - getPaddingLeft() - getPaddingRight();
+    }
+
+    /**
+     * 测量某个范围中的tab的宽度，宽度数组需要已经足够大
+     *
+     * @param start 第一个需要测量的tab的下标
+     * @param end   最后一个需要测量的tab的下一个下标
+     */
+    private void measureTabWidths(int start, int end) {
+        if (mTabNames instanceof LazyTabTitles) {
+            Arrays.fill(mTabWidths, start, end, mTabWidth);
+            return;
+        }
+        RowPacker.WidthMeasurer measurer = getTabWidthMeasurer();
+        for (int i = start; i < end; i++) {
+            mTabWidths[i] = measurer.measure(i, mTabNames.get(i));
+        }
+    }
+
+    /**
+     * 测量tab的宽度
+     *
+     * @param start 第一个需要测量的tab的下标
+     */
+    private void measureTabWidths(int start) {
+        if (mTabNames instanceof LazyTabTitles) {
+            //使用固定的宽度，不需要获取名称
+            int count = mTabNames.size();
+            if (mTabWidths == null || mTabWidths.length < count) {
+                mTabWidths = new float[count];
+            }
+            Arrays.fill(mTabWidths, start, count, mTabWidth);
+            return;
+        }
+        mTabWidths = RowPacker.measure(mTabNames, start, getTabWidthMeasurer(), mTabWidths);
+    }
+
+    /**
+     * 获取tab的宽度测量器，会在后台线程中使用，需要线程安全
+     *
+     * @return 宽度测量器
+     */
+    private RowPacker.WidthMeasurer getTabWidthMeasurer() {
+        if (mTabWidthMeasurer != null) {
+            return mTabWidthMeasurer;
+        }
+        if (mTabWidthMode == TAB_WIDTH_WRAP_CONTENT) {
+            //文字宽度加上左右的padding以及图标的宽度，文字宽度缓存是线程安全的
+            final TextWidthCache widthCache = mTextWidthCache;
+            final float padding = mTabHorizontalPadding * 2;
+            final float minWidth = mTabMinWidth;
+            final float maxWidth = mTabMaxWidth;
+            mTabWidthMeasurer = new RowPacker.WidthMeasurer() {
+                @Override
+                public float measure(int index, CharSequence text) {
+                    //向上取整，避免摆放时宽度被截断导致文字显示省略号
+                    float width = (float) Math.ceil(widthCache.measure(text) + padding + getTabIconWidth(index));
+                    return Math.min(Math.max(width, minWidth), maxWidth);
+                }
+            };
+        } else {
+            //tab的宽度是固定的
+            final float tabWidth = mTabWidth;
+            mTabWidthMeasurer = new RowPacker.WidthMeasurer() {
+                @Override
+                public float measure(int index, CharSequence text) {
+                    return tabWidth;
+                }
+            };
+        }
+        return mTabWidthMeasurer;
+    }
+
+    /**
+     * 获取TabModel中tab的图标以及图标与文字之间的间隔所占的宽度。
+     * 后台线程中测量时已经解除了TabModel，不会获取图标
+     *
+     * @param index tab的下标
+     * @return 宽度，没有图标时为0
+     */
+    private int getTabIconWidth(int index) {
+        TabModel tabModel = mTabModel;
+        if (tabModel == null || index >= tabModel.size()) {
+            return 0;
+        }
+        int icon = tabModel.getIcon(index);
+        if (icon == 0) {
+            return 0;
+        }
+        int iconWidth = mTabIconWidths.get(icon, -1);
+        if (iconWidth < 0) {
+            Drawable drawable = ContextCompat.getDrawable(mContext, icon);
+            iconWidth = drawable != null ? drawable.getIntrinsicWidth() : 0;
+            mTabIconWidths.put(icon, iconWidth);
+        }
+        return iconWidth + mTabIconPadding;
+    }
+
+    /**
+     * 创建一个tabTextView
+     *
+     * @param index tab的下标
+     * @return tabText
+     */
+    @NonNull
+    private TextView newTabText(int index) {
+        //优先从复用池中获取，只需要重新设置文字
+        TextView tabText = mTabViewPool.acquire();
+        if (tabText == null) {
+            tabText = createTabText();
+        }
+        bindTabText(tabText, index);
+        return tabText;
+    }
+
+    /**
+     * 为tabText绑定数据
+     *
+     * @param tabText tabText
+     * @param index   tab的下标
+     */
+    private void bindTabText(TextView tabText, int index) {
+        tabText.setText(mTabNames.get(index));
+        //点击时直接通过tag获取下标
+        tabText.setTag(R.id.multi_layout_tab_index, index);
+        //复用的tabText可能带有之前的图标，没有TabModel时也需要清除
+        tabText.setCompoundDrawablesWithIntrinsicBounds(mTabModel != null ? mTabModel.getIcon(index) : 0, 0, 0, 0);
+        if (mOnTabBindListener != null) {
+            mOnTabBindListener.bind(tabText, index);
+        }
+    }
+
+    /**
+     * 创建一个没有文字的tabTextView
+     *
+     * @return tabText
+     */
+    @NonNull
+    private TextView createTabText() {
+        mCreatedViewCount++;
+        TextView tabText = new TextView(mContext);
+        tabText.setTextSize(mTabTextSize);
+        tabText.setTextColor(mTabTextColor);
+        tabText.setGravity(Gravity.CENTER);
+        tabText.setMaxLines(1);
+        tabText.setEllipsize(TextUtils.TruncateAt.END);
+        tabText.setCompoundDrawablePadding(mTabIconPadding);
+        LayoutParams layoutParams = new LayoutParams((int) mTabWidth, (int) mTabHeight);
+        tabText.setLayoutParams(layoutParams);
+        tabText.setOnClickListener(this);
+        return tabText;
+    }
+
+    /**
+     * 更新indicator的位置
+     *
+     * @param index 选中的tab在集合中的下标
+     */
+    private void updateIndicator(int index) {
+        MultiLayoutLog.d("updateIndicator");
+        if (mIndicatorAnimator != null) {
+            mIndicatorAnimator.cancel();
+        }
+        moveIndicator(getIndicatorX(index), getIndicatorY(mTabRows[index]));
+    }
+
+    /**
+     * 使用动画将indicator移动到某个tab的下方
+     *
+     * @param index tab的下标
+     */
+    private void animateIndicator(int index) {
+        if (mIndicatorAnimator == null) {
+            mIndicatorAnimator = ValueAnimator.ofFloat(0, 1);
+            mIndicatorAnimator.setDuration(getResources().getInteger(android.R.integer.config_shortAnimTime));
+            mIndicatorAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+                @Override
+                public void onAnimationUpdate(ValueAnimator animation) {
+                    float fraction = animation.getAnimatedFraction();
+                    moveIndicator(mIndicatorStartX + (mIndicatorEndX - mIndicatorStartX) * fraction,
+                            mIndicatorStartY + (mIndicatorEndY - mIndicatorStartY) * fraction);
+                }
+            });
+        }
+        mIndicatorAnimator.cancel();
+        mIndicatorStartX = mIndicatorTranslateX;
+        mIndicatorStartY = mIndicatorTranslateY;
+        mIndicatorEndX = getIndicatorX(index);
+        mIndicatorEndY = getIndicatorY(mTabRows[index]);
+        mIndicatorAnimator.start();
+    }
+
+    /**
+     * 获取indicator在某个tab下方时x方向的位置
+     *
+     * @param index tab的下标
+     * @return x方向的位置
+     */
+    private float getIndicatorX(int index) {
+        //indicator在tab下方居中
+        float indicatorMargin = (getTabWidthAt(index) - mIndicatorRectF.width()) / 2;
+        return getTabLeft(index, mTabRows[index]) + indicatorMargin;
+    }
+
+    /**
+     * 获取indicator在某一行下方时y方向的位置
+     *
+     * @param row 行号
+     * @return y方向的位置
+     */
+    private float getIndicatorY(int row) {
+        return getPaddingTop() + (row + 1) * mTabHeight;
+    }
+
+    /**
+     * 移动indicator，只重绘indicator移动前后所在的区域
+     *
+     * @param translateX x方向的位置
+     * @param translateY y方向的位置
+     */
+    private void moveIndicator(float translateX, float translateY) {
+        if (translateX == mIndicatorTranslateX && translateY == mIndicatorTranslateY) {
+            return;
+        }
+        //移动前的区域
+        setIndicatorBounds(mIndicatorDirtyRect);
+        mIndicatorTranslateX = translateX;
+        mIndicatorTranslateY = translateY;
+        //加上移动后的区域
+        setIndicatorBounds(mIndicatorBounds);
+        mIndicatorDirtyRect.union(mIndicatorBounds);
+        invalidate(mIndicatorDirtyRect);
+    }
+
+    /**
+     * 计算indicator当前所在的区域，多出1px避免抗锯齿的边缘残留
+     *
+     * @param bounds 保存区域的Rect
+     */
+    private void setIndicatorBounds(Rect bounds) {
+        bounds.set((int) Math.floor(mIndicatorTranslateX + mIndicatorRectF.left) - 1,
+                (int) Math.floor(mIndicatorTranslateY + mIndicatorRectF.top) - 1,
+                (int) Math.ceil(mIndicatorTranslateX + mIndicatorRectF.right) + 1,
+                (int) Math.ceil(mIndicatorTranslateY + mIndicatorRectF.bottom) + 1);
+    }
+
+    /*
+     * 测量view控件的宽高，宽度为tabText绑定的tab的宽度
+     */
+    private void measureTabText(TextView view) {
+        Object index = view.getTag(R.id.multi_layout_tab_index);
+        int width = index instanceof Integer && (Integer) index < mTabCount
+                ? getTabWidthAt((Integer) index) : (int) mTabWidth;
+        int w = MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY);
+        int h = MeasureSpec.makeMeasureSpec((int) mTabHeight, MeasureSpec.EXACTLY);
+        view.measure(w, h);
+    }
+
+    @Override
+    public void onClick(View v) {
+        if (!(v instanceof TextView)) {
+            return;
+        }
+        //tabText点击时，如果ViewPager不为空则需要与其联动
+        Object index = v.getTag(R.id.multi_layout_tab_index);
+        if (index instanceof Integer) {
+            clickTab((Integer) index);
+        }
+    }
+
+    /**
+     * 点击tab
+     *
+     * @param index 点击的tab在集合中的下标
+     */
+    private void clickTab(int index) {
+        if (index < 0 || index == mSelectedIndex) {
+            return;
+        }
+        //处理状态选择事件
+        selectTab(index, false);
+        if (mViewPager != null) {
+            mViewPager.setCurrentItem(index, false);
+        }
+    }
+
+    /**
+     * 选择tab
+     *
+     * @param index   当前tab在集合中的下标
+     * @param animate true indicator使用动画移动
+     */
+    private void selectTab(int index, boolean animate) {
+        selectTab(index, animate, true);
+    }
+
+    /**
+     * 选择tab
+     *
+     * @param index   当前tab在集合中的下标
+     * @param animate true indicator使用动画移动
+     * @param notify  true 回调OnTabSelectListener
+     */
+    private void selectTab(int index, boolean animate, boolean notify) {
+        long start = beginMetrics("MultiLayout.select");
+        int created = mCreatedViewCount;
+        int recycled = mRecycledViewCount;
+        try {
+            applySelection(index, animate, notify);
+        } finally {
+            if (start != 0) {
+                endMetrics(METRICS_SELECT, start, created, recycled);
+            }
+        }
+    }
+
+    /**
+     * 更新tab的选中状态和indicator，并回调OnTabSelectListener
+     *
+     * @param index   当前tab在集合中的下标
+     * @param animate true indicator使用动画移动
+     * @param notify  true 回调OnTabSelectListener
+     */
+    private void applySelection(int index, boolean animate, boolean notify) {
+        //选中了收起时隐藏的tab，例如ViewPager滑动到了后面的页面，先展开
+        if (!mExpanded && hasExpandArea() && index >= 0 && index < mTabCount && mTabRows[index] >= mMaxVisibleRows) {
+            setExpanded(true, animate);
+        }
+        if (mRenderMode == RENDER_MODE_CANVAS) {
+            //只有选中状态变化的两个tab需要重新录制
+            mTabTextRenderer.invalidateRenderNode(mSelectedIndex);
+            mTabTextRenderer.invalidateRenderNode(index);
+            if (mSelectedIndex >= 0) {
+                mAccessibilityHelper.invalidateVirtualView(mSelectedIndex);
+            }
+            if (index >= 0) {
+                mAccessibilityHelper.invalidateVirtualView(index);
+            }
+        }
+        TextView textView = null;
+        if (!isEmpty(mTabTextList)) {
+            //将其置为选择状态，virtualized模式下不可见的tab没有tabText
+            textView = mTabTextList.get(index);
+            if (textView != null) {
+                textView.setSelected(true);
+            }
+            if (mSelectedIndex >= 0 && mSelectedIndex < mTabTextList.size() && mSelectedIndex != index
+                    && mTabTextList.get(mSelectedIndex) != null) {
+                mTabTextList.get(mSelectedIndex).setSelected(false);//取消前一个的选择状态
+            }
+        }
+        mSelectedIndex = index;
+        mSelectedId = mTabModel != null ? mTabModel.getId(index) : TabModel.NO_ID;
+
+        //ViewPager滑动时indicator跟随onPageScrolled移动
+        if (mPageScrollState == ViewPager.SCROLL_STATE_IDLE) {
+            if (animate) {
+                animateIndicator(index);
+            } else {
+                updateIndicator(index);
+            }
+        }
+        if (mRenderMode == RENDER_MODE_CANVAS) {
+            //canvas模式下需要重绘tab文字的选中状态
+            invalidate();
+        }
+        if (notify && mOnTabSelectListener != null) {//监听事件
+            mOnTabSelectListener.select(textView, mTabColumns[index], index);
+        }
+    }
+
+    @Override
+    public void onPageScrolled(int position, float positionOffset,
+                               int positionOffsetPixels) {
+        MultiLayoutLog.d("onPageScrolled position: ", position);
+        if (position < 0 || position >= mTabCount || mRowPacker.getTabCount() != mTabCount) {
+            return;
+        }
+        //indicator从当前页对应的tab按滑动比例移向下一个tab，跨行时同时在y方向上移动
+        float translateX = getIndicatorX(position);
+        float translateY = getIndicatorY(mTabRows[position]);
+        if (positionOffset > 0 && position + 1 < mTabCount) {
+            translateX += (getIndicatorX(position + 1) - translateX) * positionOffset;
+            translateY += (getIndicatorY(mTabRows[position + 1]) - translateY) * positionOffset;
+        }
+        moveIndicator(translateX, translateY);
+    }
+
+    @Override
+    public void onPageSelected(int position) {
+        MultiLayoutLog.d("onPageSelected position: ", position);
+        //根据viewPager页面切换时回调次方法，所以可以通过position获得tab
+        if (position < 0 || position >= mTabCount || mSelectedIndex == position) {
+            return;
+        }
+        //选择当前tab
+        selectTab(position, false);
+    }
+
+    @Override
+    public void onPageScrollStateChanged(int state) {
+        MultiLayoutLog.d("onPageScrollStateChanged:  ", state);
+        mPageScrollState = state;
+        if (state == ViewPager.SCROLL_STATE_IDLE && mSelectedIndex >= 0 && mSelectedIndex < mTabCount
+                && mRowPacker.getTabCount() == mTabCount) {
+            //滑动结束后indicator停在选中的tab下方
+            updateIndicator(mSelectedIndex);
+        }
     }
 
 
@@ -590,7 +3090,7 @@ public class MultiLayout extends LinearLayout implements View.OnClickListener,
     public void onAdapterChanged(@NonNull ViewPager viewPager,
                                  @Nullable PagerAdapter oldAdapter,
                                  @Nullable PagerAdapter newAdapter) {
-        Log.d(TAG, "onAdapterChange");
+        MultiLayoutLog.d("onAdapterChange");
         if (oldAdapter != null) {
             //pager发生改变时需要移除当前观察者
             oldAdapter.unregisterDataSetObserver(mDataSetObserver);
@@ -609,7 +3109,7 @@ public class MultiLayout extends LinearLayout implements View.OnClickListener,
         @Override
         public void onChanged() {//adapter数据更新后会调用此方法
             super.onChanged();
-            Log.d(TAG, "update data");
+            MultiLayoutLog.d("update data");
             notifyDataSetChange();
         }
     }
@@ -624,6 +3124,90 @@ public class MultiLayout extends LinearLayout implements View.OnClickListener,
         }
     }
 
+    /**
+     * canvas模式下为每个tab提供一个无障碍虚拟节点，支持触摸浏览和无障碍点击
+     */
+    private class TabAccessibilityHelper extends ExploreByTouchHelper {
+        private final Rect mTabBounds = new Rect();
+
+        TabAccessibilityHelper(View host) {
+            super(host);
+        }
+
+        @Override
+        protected int getVirtualViewAt(float x, float y) {
+            if (isInExpandArea(y)) {
+                return INVALID_ID;
+            }
+            int index = findTabAt(x, y);
+            return index >= 0 ? index : INVALID_ID;
+        }
+
+        @Override
+        protected void getVisibleVirtualViews(List<Integer> virtualViewIds) {
+            //收起时隐藏的行中的tab不提供
+            int shownRowCount = Math.min(getShownRowCount(), mRowPacker.getRowCount());
+            int end = shownRowCount > 0 ? mRowPacker.getRowEnd(shownRowCount - 1) : 0;
+            for (int i = 0; i < end; i++) {
+                virtualViewIds.add(i);
+            }
+        }
+
+        @Override
+        protected void onPopulateNodeForVirtualView(int virtualViewId, AccessibilityNodeInfoCompat node) {
+            if (virtualViewId >= mTabCount) {
+                //tab已经被移除，节点必须有内容和位置
+                node.setContentDescription("");
+                mTabBounds.set(0, 0, 1, 1);
+                node.setBoundsInParent(mTabBounds);
+                return;
+            }
+            int row = mTabRows[virtualViewId];
+            int left = (int) getTabLeft(virtualViewId, row);
+            int top = getPaddingTop() + (int) (row * mTabHeight);
+            mTabBounds.set(left, top, left + getTabWidthAt(virtualViewId), top + (int) mTabHeight);
+            node.setText(mTabNames.get(virtualViewId));
+            node.setClassName(TextView.class.getName());
+            node.setBoundsInParent(mTabBounds);
+            node.setClickable(true);
+            node.setSelected(virtualViewId == mSelectedIndex);
+            node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+        }
+
+        @Override
+        protected boolean onPerformActionForVirtualView(int virtualViewId, int action, @Nullable Bundle arguments) {
+            if (action != AccessibilityNodeInfoCompat.ACTION_CLICK || virtualViewId >= mTabCount) {
+                return false;
+            }
+            clickVirtualTab(virtualViewId);
+            return true;
+        }
+    }
+
+    /**
+     * 从ViewPager的adapter中按需获取pageTitle
+     */
+    private static class PagerAdapterTitleProvider implements TabTitleProvider {
+        private final PagerAdapter mAdapter;
+
+        PagerAdapterTitleProvider(PagerAdapter adapter) {
+            mAdapter = adapter;
+        }
+
+        @Override
+        public int getTabCount() {
+            return mAdapter.getCount();
+        }
+
+        @Nullable
+        @Override
+        public CharSequence getTabTitle(int index) {
+            //adapter是同步获取的，没有pageTitle时不显示占位文字
+            CharSequence title = mAdapter.getPageTitle(index);
+            return title == null ? "" : title;
+        }
+    }
+
     /**
      * 判断集合是否为空
      *
@@ -634,6 +3218,76 @@ public class MultiLayout extends LinearLayout implements View.OnClickListener,
         return collection == null || collection.isEmpty();
     }
 
+    /**
+     * 保存选中的tab下标，屏幕旋转等重建后恢复选中状态
+     */
+    static class SavedState extends BaseSavedState {
+        //选中的tab下标
+        int selectedIndex;
+        //是否展开
+        boolean expanded;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel source) {
+            super(source);
+            selectedIndex = source.readInt();
+            expanded = source.readInt() != 0;
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(selectedIndex);
+            out.writeInt(expanded ? 1 : 0);
+        }
+
+        public static final Creator<SavedState> CREATOR = new Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel source) {
+                return new SavedState(source);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
+    /**
+     * 性能数据的监听，参数都是基本类型，回调时不会创建对象
+     */
+    public interface OnMetricsListener {
+        /**
+         * 一个阶段结束时回调
+         *
+         * @param event         阶段，{@link #METRICS_UPDATE_TABS}、{@link #METRICS_MEASURE}、{@link #METRICS_LAYOUT}、
+         *                      {@link #METRICS_DRAW}、{@link #METRICS_SELECT}或者{@link #METRICS_PROGRESSIVE_BUILD}
+         * @param tabCount      tab的个数
+         * @param rowCount      行数
+         * @param elapsedNanos  耗时，单位纳秒
+         * @param viewsCreated  此阶段中创建的tabText个数
+         * @param viewsRecycled 此阶段中放入复用池的tabText个数
+         */
+        void onMetrics(int event, int tabCount, int rowCount, long elapsedNanos, int viewsCreated, int viewsRecycled);
+    }
+
+    /**
+     * tabText绑定数据的监听
+     */
+    public interface OnTabBindListener {
+        /**
+         * tabText创建、复用或者数据变化时回调，名称已经设置好，可以通过{@link MultiLayout#getTabModel()}获取角标等数据
+         *
+         * @param tabText tabText
+         * @param index   tab的下标
+         */
+        void bind(TextView tabText, int index);
+    }
+
     /**
      * tab选择监听事件
      */
@@ -641,10 +3295,12 @@ public class MultiLayout extends LinearLayout implements View.OnClickListener,
         /**
          * tabText选择事件
          *
-         * @param tabText  当前选中的tabText
-         * @param position 当前选择tabText的相对位置
+         * @param tabText  当前选中的tabText，{@link #RENDER_MODE_CANVAS}模式下没有tabText，
+         *                 只创建部分行的tabText时（virtualized、收起或者分批创建）选中的tab可能还没有tabText，此时为null，
+         *                 需要使用index
+         * @param position 当前选择tabText在所在行中的列，所在的行可以通过{@link MultiLayout#getTabRow(int)}获取
          * @param index    当前选择的集合中的绝对位置
          */
-        void select(TextView tabText, int position, int index);
+        void select(@Nullable TextView tabText, int position, int index);
     }
 }
\ No newline at end of file
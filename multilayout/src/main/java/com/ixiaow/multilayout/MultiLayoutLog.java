@@ -0,0 +1,35 @@
+package com.ixiaow.multilayout;
+
+import android.util.Log;
+
+/**
+ * MultiLayout的调试日志，关闭时不会拼接字符串也不会调用{@link Log}。
+ * 参数使用基本类型的重载方法，只在打印时才拼接字符串，
+ * 开启混淆的release包中会通过consumer-rules.pro将所有调用移除
+ */
+final class MultiLayoutLog {
+
+    private static final String TAG = "MultiLayout";
+
+    //是否打印日志，默认只在debug包中打印
+    private static boolean sEnabled = BuildConfig.DEBUG;
+
+    private MultiLayoutLog() {
+    }
+
+    static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    static void d(String msg) {
+        if (sEnabled) {
+            Log.d(TAG, msg);
+        }
+    }
+
+    static void d(String msg, int value) {
+        if (sEnabled) {
+            Log.d(TAG, msg + value);
+        }
+    }
+}
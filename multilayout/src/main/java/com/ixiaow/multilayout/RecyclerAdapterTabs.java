@@ -0,0 +1,73 @@
+package com.ixiaow.multilayout;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * 将RecyclerView adapter的数据变化转换为MultiLayout中tab的局部更新。
+ * 单独放在这个类中，MultiLayout本身不引用RecyclerView，没有依赖recyclerview-v7的应用不受影响
+ */
+public final class RecyclerAdapterTabs extends RecyclerView.AdapterDataObserver {
+
+    private final MultiLayout mMultiLayout;
+    private final RecyclerView.Adapter<?> mAdapter;
+
+    private RecyclerAdapterTabs(MultiLayout multiLayout, RecyclerView.Adapter<?> adapter) {
+        mMultiLayout = multiLayout;
+        mAdapter = adapter;
+    }
+
+    /**
+     * 关联RecyclerView的adapter（例如基于RecyclerView的ViewPager），adapter数据的插入、移除、移动和更新
+     * 只更新受影响的tab，不会全部重新创建。tab名称按需从titleProvider中获取，
+     * titleProvider的个数需要与adapter保持一致，选中状态可以通过{@link MultiLayout#setSelectedIndex(int, boolean)}同步
+     *
+     * @param multiLayout   MultiLayout
+     * @param adapter       RecyclerView的adapter，为null时解除关联
+     * @param titleProvider tab名称提供者
+     */
+    public static void setup(@NonNull MultiLayout multiLayout, @Nullable RecyclerView.Adapter<?> adapter,
+                             @Nullable TabTitleProvider titleProvider) {
+        //之前的关联保存在tag中
+        Object tag = multiLayout.getTag(R.id.multi_layout_recycler_adapter);
+        if (tag instanceof RecyclerAdapterTabs) {
+            RecyclerAdapterTabs observer = (RecyclerAdapterTabs) tag;
+            observer.mAdapter.unregisterAdapterDataObserver(observer);
+            multiLayout.setTag(R.id.multi_layout_recycler_adapter, null);
+        }
+        if (adapter == null || titleProvider == null) {
+            multiLayout.setTabTitleProvider(null);
+            return;
+        }
+        RecyclerAdapterTabs observer = new RecyclerAdapterTabs(multiLayout, adapter);
+        adapter.registerAdapterDataObserver(observer);
+        multiLayout.setTag(R.id.multi_layout_recycler_adapter, observer);
+        multiLayout.setTabTitleProvider(titleProvider);
+    }
+
+    @Override
+    public void onChanged() {
+        mMultiLayout.onTabsChanged();
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount) {
+        mMultiLayout.notifyTabTitlesChanged(positionStart, positionStart + itemCount);
+    }
+
+    @Override
+    public void onItemRangeInserted(int positionStart, int itemCount) {
+        mMultiLayout.onTabRangeInserted(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemRangeRemoved(int positionStart, int itemCount) {
+        mMultiLayout.onTabRangeRemoved(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+        mMultiLayout.onTabRangeMoved(fromPosition, toPosition, itemCount);
+    }
+}
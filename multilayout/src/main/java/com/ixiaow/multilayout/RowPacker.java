@@ -0,0 +1,384 @@
+package com.ixiaow.multilayout;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * tab换行计算，只依赖tab的宽度，不依赖Android，可以直接在JVM上测试或者在子线程中使用。
+ * 计算结果保存在可复用的int/float数组中，计算过程中不会为每个tab分配对象
+ */
+public final class RowPacker {
+
+    /**
+     * 依次放置tab，当前行放不下时换行，除最后一行外每行都尽量放满
+     */
+    public static final int STRATEGY_GREEDY = 0;
+    /**
+     * 行数与{@link #STRATEGY_GREEDY}相同，但让每一行剩余的宽度尽量平均，
+     * 避免最后一行只有很少的tab
+     */
+    public static final int STRATEGY_BALANCED = 1;
+
+    /**
+     * tab宽度测量器
+     */
+    public interface WidthMeasurer {
+        /**
+         * 测量tab的宽度
+         *
+         * @param index tab的下标
+         * @param text  tab的名称
+         * @return tab的宽度
+         */
+        float measure(int index, CharSequence text);
+    }
+
+    //每一行第一个tab的下标
+    private int[] mRowStarts = new int[0];
+    //每一行中每个tab右边的间隔
+    private float[] mRowMargins = new float[0];
+    //行数
+    private int mRowCount;
+    //tab的个数
+    private int mTabCount;
+    //所有行中最小的间隔
+    private float mMinMargin;
+    //换行策略
+    private int mStrategy = STRATEGY_GREEDY;
+
+    /*
+     * 平衡换行时动态规划使用的数组，下标i表示从第i个tab开始到最后的部分，
+     * 长度为tab的个数 + 1，会被复用
+     */
+    //从第i个tab开始最少需要的行数
+    private int[] mSuffixRows = new int[0];
+    //从第i个tab开始每行剩余宽度的平方和
+    private double[] mSuffixCosts = new double[0];
+    //从第i个tab开始的这一行的下一行第一个tab的下标
+    private int[] mNextBreaks = new int[0];
+
+    /**
+     * 设置换行策略
+     *
+     * @param strategy {@link #STRATEGY_GREEDY}或者{@link #STRATEGY_BALANCED}
+     */
+    public void setStrategy(int strategy) {
+        mStrategy = strategy;
+    }
+
+    /**
+     * @return 换行策略
+     */
+    public int getStrategy() {
+        return mStrategy;
+    }
+
+    /**
+     * 测量tab的宽度
+     *
+     * @param texts    tab名称集合
+     * @param start    第一个需要测量的tab的下标
+     * @param measurer 宽度测量器
+     * @param widths   保存tab宽度的数组，长度不够时会重新创建
+     * @return 保存tab宽度的数组
+     */
+    public static float[] measure(List<? extends CharSequence> texts, int start,
+                                  WidthMeasurer measurer, float[] widths) {
+        int count = texts.size();
+        if (widths == null || widths.length < count) {
+            widths = widths == null ? new float[count] : Arrays.copyOf(widths, count);
+        }
+        for (int i = start; i < count; i++) {
+            widths[i] = measurer.measure(i, texts.get(i));
+        }
+        return widths;
+    }
+
+    /**
+     * 从第一行开始换行
+     *
+     * @param widths         每个tab的宽度
+     * @param count          tab的个数
+     * @param containerWidth 可用的宽度
+     * @param minSpacing     同一行中tab之间最小的间隔
+     */
+    public void pack(float[] widths, int count, float containerWidth, float minSpacing) {
+        pack(widths, count, containerWidth, minSpacing, 0);
+    }
+
+    /**
+     * 从某一行开始重新换行，之前的行保持不变。如果只有某个位置之后的tab发生了变化，
+     * 可以从{@link #findRepackRow(int)}得到的行开始换行。
+     * {@link #STRATEGY_BALANCED}策略中后面的tab会影响前面的行，总是从第一行开始换行
+     *
+     * @param widths         每个tab的宽度
+     * @param count          tab的个数
+     * @param containerWidth 可用的宽度
+     * @param minSpacing     同一行中tab之间最小的间隔
+     * @param fromRow        开始换行的行
+     */
+    public void pack(float[] widths, int count, float containerWidth, float minSpacing, int fromRow) {
+        if (mRowStarts.length < count) {
+            //每个tab最多占一行
+            mRowStarts = Arrays.copyOf(mRowStarts, count);
+            mRowMargins = Arrays.copyOf(mRowMargins, count);
+        }
+        if (mStrategy == STRATEGY_BALANCED) {
+            packBalanced(widths, count, containerWidth, minSpacing);
+        } else {
+            packGreedy(widths, count, containerWidth, minSpacing, fromRow);
+        }
+        updateMinMargin();
+    }
+
+    /**
+     * 直接使用之前保存的换行结果，不重新计算
+     *
+     * @param tabCount   tab的个数
+     * @param rowCount   行数
+     * @param rowStarts  每一行第一个tab的下标
+     * @param rowMargins 每一行中每个tab右边的间隔
+     */
+    void restore(int tabCount, int rowCount, int[] rowStarts, float[] rowMargins) {
+        if (mRowStarts.length < tabCount) {
+            mRowStarts = new int[tabCount];
+            mRowMargins = new float[tabCount];
+        }
+        System.arraycopy(rowStarts, 0, mRowStarts, 0, rowCount);
+        System.arraycopy(rowMargins, 0, mRowMargins, 0, rowCount);
+        mTabCount = tabCount;
+        mRowCount = rowCount;
+        updateMinMargin();
+    }
+
+    /**
+     * 找出所有行中最小的间隔
+     */
+    private void updateMinMargin() {
+        mMinMargin = 0;
+        for (int row = 0; row < mRowCount; row++) {
+            if (row == 0 || mRowMargins[row] < mMinMargin) {
+                mMinMargin = mRowMargins[row];
+            }
+        }
+    }
+
+    /**
+     * 依次放置tab，当前行放不下时换行
+     *
+     * @param widths         每个tab的宽度
+     * @param count          tab的个数
+     * @param containerWidth 可用的宽度
+     * @param minSpacing     同一行中tab之间最小的间隔
+     * @param fromRow        开始换行的行
+     */
+    private void packGreedy(float[] widths, int count, float containerWidth, float minSpacing, int fromRow) {
+        int start = fromRow < mRowCount ? mRowStarts[fromRow] : 0;
+        mRowCount = fromRow < mRowCount ? fromRow : 0;
+        mTabCount = count;
+
+        //当前行中tab的宽度之和，不包括间隔
+        float rowWidth = 0;
+        //当前行中tab的个数
+        int rowTabs = 0;
+        for (int i = start; i < count; i++) {
+            float width = widths[i];
+            /*
+             * 当前行中tab的宽度之和 + 间隔 + tab的宽度 不超过可用宽度时放在当前行，
+             * 否则换行，每行至少有一个tab
+             */
+            if (rowTabs > 0 && rowWidth + rowTabs * minSpacing + width <= containerWidth) {
+                rowWidth += width;
+                rowTabs++;
+                continue;
+            }
+            if (rowTabs > 0) {
+                closeRow(rowWidth, rowTabs, containerWidth);
+            }
+            rowWidth = width;
+            rowTabs = 1;
+            mRowStarts[mRowCount++] = i;
+        }
+        if (rowTabs > 0) {
+            closeRow(rowWidth, rowTabs, containerWidth);
+        }
+    }
+
+    /**
+     * 动态规划换行：先保证行数最少，行数相同时让每一行剩余宽度的平方和最小。
+     * 从最后一个tab向前计算，每个tab只需要尝试一行中能放下的tab个数k，时间复杂度O(n·k)
+     *
+     * @param widths         每个tab的宽度
+     * @param count          tab的个数
+     * @param containerWidth 可用的宽度
+     * @param minSpacing     同一行中tab之间最小的间隔
+     */
+    private void packBalanced(float[] widths, int count, float containerWidth, float minSpacing) {
+        if (mSuffixRows.length < count + 1) {
+            mSuffixRows = new int[count + 1];
+            mSuffixCosts = new double[count + 1];
+            mNextBreaks = new int[count + 1];
+        }
+        mSuffixRows[count] = 0;
+        mSuffixCosts[count] = 0;
+        for (int i = count - 1; i >= 0; i--) {
+            int bestRows = Integer.MAX_VALUE;
+            double bestCost = 0;
+            int bestNext = i + 1;
+            //从第i个tab到第j个tab放在同一行
+            float rowWidth = 0;
+            for (int j = i; j < count; j++) {
+                rowWidth += widths[j];
+                float used = rowWidth + (j - i) * minSpacing;
+                //每行至少有一个tab
+                if (j > i && used > containerWidth) {
+                    break;
+                }
+                float slack = Math.max(0, containerWidth - used);
+                int rows = mSuffixRows[j + 1] + 1;
+                double cost = mSuffixCosts[j + 1] + (double) slack * slack;
+                //代价相同时让前面的行放更多的tab
+                if (rows < bestRows || (rows == bestRows && cost <= bestCost)) {
+                    bestRows = rows;
+                    bestCost = cost;
+                    bestNext = j + 1;
+                }
+            }
+            mSuffixRows[i] = bestRows;
+            mSuffixCosts[i] = bestCost;
+            mNextBreaks[i] = bestNext;
+        }
+
+        mRowCount = 0;
+        mTabCount = count;
+        for (int i = 0; i < count; i = mNextBreaks[i]) {
+            float rowWidth = 0;
+            for (int j = i; j < mNextBreaks[i]; j++) {
+                rowWidth += widths[j];
+            }
+            mRowStarts[mRowCount++] = i;
+            closeRow(rowWidth, mNextBreaks[i] - i, containerWidth);
+        }
+    }
+
+    /**
+     * 计算最后一行中每个tab右边需要的间隔，剩余的宽度平均分配给每个tab的右边。
+     * 单个tab超出可用宽度时间隔为0，不能为负数，否则所有行的tab都会重叠
+     *
+     * @param rowWidth       当前行中tab的宽度之和
+     * @param rowTabs        当前行中tab的个数
+     * @param containerWidth 可用的宽度
+     */
+    private void closeRow(float rowWidth, int rowTabs, float containerWidth) {
+        mRowMargins[mRowCount - 1] = Math.max(0, (containerWidth - rowWidth) / rowTabs);
+    }
+
+    /**
+     * 清空换行结果
+     */
+    public void clear() {
+        mRowCount = 0;
+        mTabCount = 0;
+        mMinMargin = 0;
+    }
+
+    /**
+     * @return 行数
+     */
+    public int getRowCount() {
+        return mRowCount;
+    }
+
+    /**
+     * @return 换行时tab的个数
+     */
+    public int getTabCount() {
+        return mTabCount;
+    }
+
+    /**
+     * 获取某一行第一个tab的下标
+     *
+     * @param row 行号
+     * @return 第一个tab的下标
+     */
+    public int getRowStart(int row) {
+        return mRowStarts[row];
+    }
+
+    /**
+     * 获取某一行最后一个tab的下一个下标
+     *
+     * @param row 行号
+     * @return 下一行第一个tab的下标，最后一行则为tab的总个数
+     */
+    public int getRowEnd(int row) {
+        return row + 1 < mRowCount ? mRowStarts[row + 1] : mTabCount;
+    }
+
+    /**
+     * 获取某一行中每个tab右边的间隔
+     *
+     * @param row 行号
+     * @return 间隔
+     */
+    public float getRowMargin(int row) {
+        return mRowMargins[row];
+    }
+
+    /**
+     * @return 所有行中最小的间隔
+     */
+    public float getMinMargin() {
+        return mMinMargin;
+    }
+
+    /**
+     * 每一行第一个tab的下标，只有前{@link #getRowCount()}个有效，数组会被复用
+     *
+     * @return 每一行第一个tab的下标
+     */
+    public int[] getRowStarts() {
+        return mRowStarts;
+    }
+
+    /**
+     * 每一行中每个tab右边的间隔，只有前{@link #getRowCount()}个有效，数组会被复用
+     *
+     * @return 每一行的间隔
+     */
+    public float[] getRowMargins() {
+        return mRowMargins;
+    }
+
+    /**
+     * 找出tab所在的行
+     *
+     * @param index tab的下标
+     * @return 行号
+     */
+    public int findRow(int index) {
+        int low = 0;
+        int high = mRowCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (mRowStarts[mid] <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 找出某个位置之后的tab发生变化时需要开始重新换行的行。
+     * 变化的tab变窄或者被移除后可能放得进上一行，所以需要从其所在行的上一行开始
+     *
+     * @param index 第一个发生变化的tab的下标
+     * @return 行号
+     */
+    public int findRepackRow(int index) {
+        return Math.max(0, findRow(index) - 1);
+    }
+}
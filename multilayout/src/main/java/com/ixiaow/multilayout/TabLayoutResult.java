@@ -0,0 +1,92 @@
+package com.ixiaow.multilayout;
+
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.support.v4.text.PrecomputedTextCompat;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 在子线程中计算tab的宽度、换行以及tabText的文字排版，计算完成后在主线程中一次性使用
+ */
+final class TabLayoutResult {
+
+    //默认的后台线程
+    private static Executor sDefaultExecutor;
+
+    //发起计算时的更新次数，用于丢弃过期的结果
+    final int generation;
+    //tab名称集合
+    final List<CharSequence> tabNames;
+    //计算换行时的可用宽度，为0时不计算换行
+    final int availableWidth;
+
+    //宽度测量器，需要线程安全
+    private final RowPacker.WidthMeasurer mMeasurer;
+    //换行策略
+    private final int mPackingStrategy;
+    //tabText的文字排版参数，为null时不预先排版
+    private final PrecomputedTextCompat.Params mTextParams;
+
+    //每个tab的宽度
+    float[] widths;
+    //换行结果，可用宽度为0时为null
+    RowPacker rowPacker;
+    //预先排版好的tab文字
+    PrecomputedTextCompat[] precomputedTexts;
+
+    TabLayoutResult(int generation, List<CharSequence> tabNames, int availableWidth,
+                    RowPacker.WidthMeasurer measurer, int packingStrategy,
+                    @Nullable PrecomputedTextCompat.Params textParams) {
+        this.generation = generation;
+        this.tabNames = tabNames;
+        this.availableWidth = availableWidth;
+        mMeasurer = measurer;
+        mPackingStrategy = packingStrategy;
+        mTextParams = textParams;
+    }
+
+    /**
+     * 在子线程中计算
+     */
+    @WorkerThread
+    void compute() {
+        int count = tabNames.size();
+        widths = RowPacker.measure(tabNames, 0, mMeasurer, null);
+        if (availableWidth > 0) {
+            rowPacker = new RowPacker();
+            rowPacker.setStrategy(mPackingStrategy);
+            rowPacker.pack(widths, count, availableWidth, 0);
+        }
+        if (mTextParams != null) {
+            precomputedTexts = new PrecomputedTextCompat[count];
+            for (int i = 0; i < count; i++) {
+                CharSequence tabName = tabNames.get(i);
+                precomputedTexts[i] = PrecomputedTextCompat.create(tabName == null ? "" : tabName, mTextParams);
+            }
+        }
+    }
+
+    /**
+     * 获取默认的后台线程，所有的MultiLayout共用一个低优先级的线程
+     *
+     * @return Executor
+     */
+    static synchronized Executor getDefaultExecutor() {
+        if (sDefaultExecutor == null) {
+            sDefaultExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "MultiLayout-layout");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+        }
+        return sDefaultExecutor;
+    }
+}
@@ -0,0 +1,195 @@
+package com.ixiaow.multilayout;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * tab排版结果的二进制快照，保存每个tab的宽度以及换行结果。
+ * 使用tab名称、可用宽度、文字大小等计算出的key标识，key相同时直接使用快照，不需要再测量文字和换行。
+ * 不依赖Android，可以直接在JVM上测试
+ */
+final class TabLayoutSnapshot {
+
+    //文件头，"MLS1"
+    private static final int MAGIC = 0x4D4C5331;
+    //格式版本，格式变化时旧的快照直接失效
+    private static final int VERSION = 1;
+    //FNV-1a哈希的初始值和乘数
+    static final long HASH_SEED = 0xcbf29ce484222325L;
+    private static final long HASH_PRIME = 0x100000001b3L;
+
+    //排版参数的哈希值
+    final long key;
+    //tab的个数
+    final int tabCount;
+    //每个tab的宽度，长度至少为tab的个数
+    final float[] widths;
+    //换行结果
+    final RowPacker rowPacker;
+
+    TabLayoutSnapshot(long key, int tabCount, float[] widths, RowPacker rowPacker) {
+        this.key = key;
+        this.tabCount = tabCount;
+        this.widths = widths;
+        this.rowPacker = rowPacker;
+    }
+
+    /**
+     * 写入快照，按大端顺序依次写入文件头、key、换行策略、tab个数、行数、每个tab的宽度、
+     * 每一行第一个tab的下标以及每一行的间隔
+     *
+     * @param out 输出流，不会关闭
+     * @throws IOException 写入失败
+     */
+    void writeTo(@NonNull OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        int rowCount = rowPacker.getRowCount();
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeLong(key);
+        data.writeInt(rowPacker.getStrategy());
+        data.writeInt(tabCount);
+        data.writeInt(rowCount);
+        for (int i = 0; i < tabCount; i++) {
+            data.writeFloat(widths[i]);
+        }
+        int[] rowStarts = rowPacker.getRowStarts();
+        float[] rowMargins = rowPacker.getRowMargins();
+        for (int row = 0; row < rowCount; row++) {
+            data.writeInt(rowStarts[row]);
+        }
+        for (int row = 0; row < rowCount; row++) {
+            data.writeFloat(rowMargins[row]);
+        }
+        data.flush();
+    }
+
+    /**
+     * 读取快照
+     *
+     * @param buffer 快照数据，大端顺序
+     * @return 快照，数据不完整或者格式不正确时返回null
+     */
+    @Nullable
+    static TabLayoutSnapshot read(@NonNull ByteBuffer buffer) {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            long key = buffer.getLong();
+            int strategy = buffer.getInt();
+            int tabCount = buffer.getInt();
+            int rowCount = buffer.getInt();
+            //每个tab至少占4个字节，避免数据损坏时创建过大的数组
+            if (tabCount <= 0 || rowCount <= 0 || rowCount > tabCount || tabCount > buffer.remaining() / 4) {
+                return null;
+            }
+            float[] widths = new float[tabCount];
+            buffer.asFloatBuffer().get(widths);
+            buffer.position(buffer.position() + tabCount * 4);
+            int[] rowStarts = new int[rowCount];
+            buffer.asIntBuffer().get(rowStarts);
+            buffer.position(buffer.position() + rowCount * 4);
+            float[] rowMargins = new float[rowCount];
+            buffer.asFloatBuffer().get(rowMargins);
+            buffer.position(buffer.position() + rowCount * 4);
+            //每一行第一个tab的下标必须从0开始递增
+            for (int row = 0; row < rowCount; row++) {
+                int min = row == 0 ? 0 : rowStarts[row - 1] + 1;
+                if (rowStarts[row] < min || rowStarts[row] >= tabCount || (row == 0 && rowStarts[row] != 0)) {
+                    return null;
+                }
+            }
+            RowPacker rowPacker = new RowPacker();
+            rowPacker.setStrategy(strategy);
+            rowPacker.restore(tabCount, rowCount, rowStarts, rowMargins);
+            return new TabLayoutSnapshot(key, tabCount, widths, rowPacker);
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 读取输入流中的快照
+     *
+     * @param in 输入流，不会关闭
+     * @return 快照，格式不正确时返回null
+     * @throws IOException 读取失败
+     */
+    @Nullable
+    static TabLayoutSnapshot read(@NonNull InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+        }
+        return read(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    /**
+     * 使用内存映射读取文件中的快照，不需要将文件复制到Java堆中
+     *
+     * @param file 快照文件
+     * @return 快照，格式不正确时返回null
+     * @throws IOException 读取失败
+     */
+    @Nullable
+    static TabLayoutSnapshot read(@NonNull File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * 将一个int加入哈希值
+     *
+     * @param hash  之前的哈希值
+     * @param value 加入的值
+     * @return 新的哈希值
+     */
+    static long hash(long hash, int value) {
+        for (int i = 0; i < 4; i++) {
+            hash = (hash ^ (value & 0xff)) * HASH_PRIME;
+            value >>>= 8;
+        }
+        return hash;
+    }
+
+    /**
+     * 将文字加入哈希值，先加入长度，避免不同的拆分得到相同的哈希值
+     *
+     * @param hash 之前的哈希值
+     * @param text 加入的文字，可以为null
+     * @return 新的哈希值
+     */
+    static long hash(long hash, @Nullable CharSequence text) {
+        if (text == null) {
+            return hash(hash, -1);
+        }
+        int length = text.length();
+        hash = hash(hash, length);
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            hash = (hash ^ (c & 0xff)) * HASH_PRIME;
+            hash = (hash ^ (c >>> 8)) * HASH_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,312 @@
+package com.ixiaow.multilayout;
+
+import android.support.annotation.DrawableRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * tab数据，每个tab有一个固定不变的id、CharSequence类型的名称以及可选的角标数字和图标，
+ * 数据保存在基本类型的数组中。通过id插入、移除、移动或者更新tab时，MultiLayout只更新受影响的tab
+ */
+public final class TabModel {
+
+    /**
+     * 没有id
+     */
+    public static final long NO_ID = -1;
+
+    /**
+     * 数据变化的监听，由MultiLayout注册
+     */
+    interface Observer {
+        /**
+         * tab数据发生了变化，在某个位置先移除若干个tab再插入若干个tab，更新数据时移除和插入的个数相同
+         *
+         * @param position      第一个发生变化的位置
+         * @param removedCount  移除的个数
+         * @param insertedCount 插入的个数
+         */
+        void onTabsChanged(int position, int removedCount, int insertedCount);
+    }
+
+    //每个tab的id
+    private long[] mIds;
+    //每个tab的名称
+    private CharSequence[] mTitles;
+    //每个tab的角标数字，0表示没有角标
+    private int[] mBadges;
+    //每个tab的图标资源id，0表示没有图标
+    private int[] mIcons;
+    //tab的个数
+    private int mSize;
+
+    //数据变化的监听
+    private Observer mObserver;
+
+    public TabModel() {
+        this(10);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param capacity 初始容量
+     */
+    public TabModel(int capacity) {
+        mIds = new long[capacity];
+        mTitles = new CharSequence[capacity];
+        mBadges = new int[capacity];
+        mIcons = new int[capacity];
+    }
+
+    /**
+     * @return tab的个数
+     */
+    public int size() {
+        return mSize;
+    }
+
+    public long getId(int position) {
+        checkPosition(position);
+        return mIds[position];
+    }
+
+    public CharSequence getTitle(int position) {
+        checkPosition(position);
+        return mTitles[position];
+    }
+
+    public int getBadge(int position) {
+        checkPosition(position);
+        return mBadges[position];
+    }
+
+    @DrawableRes
+    public int getIcon(int position) {
+        checkPosition(position);
+        return mIcons[position];
+    }
+
+    /**
+     * 查找id对应的位置
+     *
+     * @param id tab的id
+     * @return 位置，没有时返回-1
+     */
+    public int indexOfId(long id) {
+        for (int i = 0; i < mSize; i++) {
+            if (mIds[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 在末尾添加一个tab
+     *
+     * @param id    tab的id，不能重复
+     * @param title tab的名称
+     */
+    public void add(long id, CharSequence title) {
+        insert(mSize, id, title, 0, 0);
+    }
+
+    /**
+     * 在某个位置插入一个tab
+     *
+     * @param position 插入的位置
+     * @param id       tab的id，不能重复
+     * @param title    tab的名称
+     * @param badge    角标数字，0表示没有角标
+     * @param icon     图标资源id，0表示没有图标
+     */
+    public void insert(int position, long id, CharSequence title, int badge, @DrawableRes int icon) {
+        if (position < 0 || position > mSize) {
+            throw new IndexOutOfBoundsException("position: " + position + ", size: " + mSize);
+        }
+        if (indexOfId(id) >= 0) {
+            throw new IllegalArgumentException("duplicate tab id: " + id);
+        }
+        ensureCapacity(mSize + 1);
+        int moved = mSize - position;
+        System.arraycopy(mIds, position, mIds, position + 1, moved);
+        System.arraycopy(mTitles, position, mTitles, position + 1, moved);
+        System.arraycopy(mBadges, position, mBadges, position + 1, moved);
+        System.arraycopy(mIcons, position, mIcons, position + 1, moved);
+        mIds[position] = id;
+        mTitles[position] = title;
+        mBadges[position] = badge;
+        mIcons[position] = icon;
+        mSize++;
+        notifyChanged(position, 0, 1);
+    }
+
+    /**
+     * 移除一个tab
+     *
+     * @param id tab的id
+     * @return true 移除成功，false 没有这个id
+     */
+    public boolean remove(long id) {
+        int position = indexOfId(id);
+        if (position < 0) {
+            return false;
+        }
+        int moved = mSize - position - 1;
+        System.arraycopy(mIds, position + 1, mIds, position, moved);
+        System.arraycopy(mTitles, position + 1, mTitles, position, moved);
+        System.arraycopy(mBadges, position + 1, mBadges, position, moved);
+        System.arraycopy(mIcons, position + 1, mIcons, position, moved);
+        mSize--;
+        mTitles[mSize] = null;
+        notifyChanged(position, 1, 0);
+        return true;
+    }
+
+    /**
+     * 将一个tab移动到新的位置
+     *
+     * @param id         tab的id
+     * @param toPosition 新的位置
+     * @return true 移动成功，false 没有这个id
+     */
+    public boolean move(long id, int toPosition) {
+        int from = indexOfId(id);
+        if (from < 0) {
+            return false;
+        }
+        checkPosition(toPosition);
+        if (from == toPosition) {
+            return true;
+        }
+        CharSequence title = mTitles[from];
+        int badge = mBadges[from];
+        int icon = mIcons[from];
+        //中间的tab整体向前或者向后移动一位
+        int start = Math.min(from, toPosition);
+        int end = Math.max(from, toPosition);
+        int dest = from < toPosition ? start : start + 1;
+        int src = from < toPosition ? start + 1 : start;
+        System.arraycopy(mIds, src, mIds, dest, end - start);
+        System.arraycopy(mTitles, src, mTitles, dest, end - start);
+        System.arraycopy(mBadges, src, mBadges, dest, end - start);
+        System.arraycopy(mIcons, src, mIcons, dest, end - start);
+        mIds[toPosition] = id;
+        mTitles[toPosition] = title;
+        mBadges[toPosition] = badge;
+        mIcons[toPosition] = icon;
+        notifyChanged(start, end - start + 1, end - start + 1);
+        return true;
+    }
+
+    /**
+     * 更新tab的名称
+     *
+     * @param id    tab的id
+     * @param title 新的名称
+     * @return true 更新成功，false 没有这个id
+     */
+    public boolean setTitle(long id, CharSequence title) {
+        int position = indexOfId(id);
+        if (position < 0) {
+            return false;
+        }
+        mTitles[position] = title;
+        notifyChanged(position, 1, 1);
+        return true;
+    }
+
+    /**
+     * 更新tab的角标数字
+     *
+     * @param id    tab的id
+     * @param badge 角标数字，0表示没有角标
+     * @return true 更新成功，false 没有这个id
+     */
+    public boolean setBadge(long id, int badge) {
+        int position = indexOfId(id);
+        if (position < 0) {
+            return false;
+        }
+        if (mBadges[position] != badge) {
+            mBadges[position] = badge;
+            notifyChanged(position, 1, 1);
+        }
+        return true;
+    }
+
+    /**
+     * 更新tab的图标
+     *
+     * @param id   tab的id
+     * @param icon 图标资源id，0表示没有图标
+     * @return true 更新成功，false 没有这个id
+     */
+    public boolean setIcon(long id, @DrawableRes int icon) {
+        int position = indexOfId(id);
+        if (position < 0) {
+            return false;
+        }
+        if (mIcons[position] != icon) {
+            mIcons[position] = icon;
+            notifyChanged(position, 1, 1);
+        }
+        return true;
+    }
+
+    /**
+     * 移除所有的tab
+     */
+    public void clear() {
+        Arrays.fill(mTitles, 0, mSize, null);
+        int count = mSize;
+        mSize = 0;
+        notifyChanged(0, count, 0);
+    }
+
+    /**
+     * 获取所有tab的名称，只复制引用，不会复制文字
+     *
+     * @return tab名称集合
+     */
+    @NonNull
+    List<CharSequence> getTitles() {
+        List<CharSequence> titles = new ArrayList<>(mSize);
+        for (int i = 0; i < mSize; i++) {
+            titles.add(mTitles[i]);
+        }
+        return titles;
+    }
+
+    void setObserver(@Nullable Observer observer) {
+        mObserver = observer;
+    }
+
+    private void notifyChanged(int position, int removedCount, int insertedCount) {
+        if (mObserver != null) {
+            mObserver.onTabsChanged(position, removedCount, insertedCount);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (mIds.length >= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, mIds.length * 2);
+        mIds = Arrays.copyOf(mIds, newCapacity);
+        mTitles = Arrays.copyOf(mTitles, newCapacity);
+        mBadges = Arrays.copyOf(mBadges, newCapacity);
+        mIcons = Arrays.copyOf(mIcons, newCapacity);
+    }
+
+    private void checkPosition(int position) {
+        if (position < 0 || position >= mSize) {
+            throw new IndexOutOfBoundsException("position: " + position + ", size: " + mSize);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.ixiaow.multilayout;
+
+import android.graphics.Canvas;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
+import android.os.Build;
+import android.support.annotation.RequiresApi;
+
+import java.util.Arrays;
+
+/**
+ * canvas绘制模式下每个tab的文字录制到一个RenderNode中，重绘时只需要绘制录制好的RenderNode，
+ * tab的文字或者选中状态变化时才重新录制。只有可见的tab才会创建RenderNode
+ */
+@RequiresApi(Build.VERSION_CODES.Q)
+final class TabRenderNodes {
+
+    //每个tab对应的RenderNode
+    private RenderNode[] mNodes = new RenderNode[0];
+
+    /**
+     * 修改tab的个数，保留已经录制的RenderNode
+     *
+     * @param tabCount tab的个数
+     */
+    void resize(int tabCount) {
+        if (mNodes.length != tabCount) {
+            for (int i = tabCount; i < mNodes.length; i++) {
+                discard(i);
+            }
+            mNodes = Arrays.copyOf(mNodes, tabCount);
+        }
+    }
+
+    /**
+     * 丢弃所有录制的内容
+     */
+    void invalidateAll() {
+        for (int i = 0; i < mNodes.length; i++) {
+            discard(i);
+        }
+    }
+
+    /**
+     * 丢弃某个tab录制的内容，下次绘制时重新录制
+     *
+     * @param index tab的下标
+     */
+    void invalidate(int index) {
+        if (index >= 0 && index < mNodes.length) {
+            discard(index);
+        }
+    }
+
+    private void discard(int index) {
+        if (mNodes[index] != null) {
+            mNodes[index].discardDisplayList();
+        }
+    }
+
+    /**
+     * 绘制一个tab的文字，没有录制时先录制
+     *
+     * @param canvas    画布，必须开启了硬件加速
+     * @param renderer  tab文字的绘制
+     * @param text      tab名称
+     * @param index     tab的下标
+     * @param left      tab的左边位置
+     * @param top       tab的上边位置
+     * @param tabWidth  tab的宽度
+     * @param tabHeight tab的高度
+     * @param selected  是否选中
+     */
+    void draw(Canvas canvas, TabTextRenderer renderer, CharSequence text, int index,
+              int left, int top, int tabWidth, int tabHeight, boolean selected) {
+        RenderNode node = mNodes[index];
+        if (node == null) {
+            node = new RenderNode("MultiLayoutTab");
+            mNodes[index] = node;
+        }
+        //宽度变化时需要重新录制，位置变化不需要
+        if (node.getWidth() != tabWidth) {
+            node.discardDisplayList();
+        }
+        node.setPosition(left, top, left + tabWidth, top + tabHeight);
+        if (!node.hasDisplayList()) {
+            RecordingCanvas recordingCanvas = node.beginRecording(tabWidth, tabHeight);
+            try {
+                renderer.drawText(recordingCanvas, text, index, 0, 0, tabWidth, selected);
+            } finally {
+                node.endRecording();
+            }
+        }
+        canvas.drawRenderNode(node);
+    }
+}
@@ -0,0 +1,228 @@
+package com.ixiaow.multilayout;
+
+import android.graphics.Canvas;
+import android.support.annotation.Nullable;
+import android.text.BoringLayout;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+
+import java.util.Arrays;
+
+/**
+ * canvas绘制模式下tab文字的绘制，每个tab只缓存一个Layout，不再创建TextView
+ */
+final class TabTextRenderer {
+
+    //文字画笔，所有tab共用
+    private final TextPaint mTextPaint;
+    //选中时的颜色
+    private final int mSelectColor;
+    //未选中时的颜色
+    private final int mUnSelectColor;
+    //文字宽度缓存
+    private final TextWidthCache mWidthCache;
+
+    //每个tab对应的文字Layout缓存，宽度与tab的宽度一致
+    private Layout[] mTabLayouts;
+    //tab的高度
+    private int mTabHeight;
+    //每个tab录制好的RenderNode，为null时直接绘制
+    private TabRenderNodes mRenderNodes;
+
+    /**
+     * 构造方法
+     *
+     * @param widthCache    文字宽度缓存，文字大小需要一致
+     * @param textSize      文字大小，单位px
+     * @param selectColor   选中时的颜色
+     * @param unSelectColor 未选中时的颜色
+     */
+    TabTextRenderer(TextWidthCache widthCache, float textSize, int selectColor, int unSelectColor) {
+        mTextPaint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+        mTextPaint.setTextSize(textSize);
+        mWidthCache = widthCache;
+        mSelectColor = selectColor;
+        mUnSelectColor = unSelectColor;
+    }
+
+    /**
+     * 设置tab的高度，高度变化后需要重新创建Layout。tab的宽度在绘制时传入，每个tab可以不同
+     *
+     * @param tabHeight tab的高度
+     */
+    void setTabHeight(int tabHeight) {
+        if (mTabHeight == tabHeight) {
+            return;
+        }
+        mTabHeight = tabHeight;
+        if (mTabLayouts != null) {
+            reset(mTabLayouts.length);
+        }
+    }
+
+    /**
+     * 清空缓存的Layout
+     *
+     * @param tabCount tab的个数
+     */
+    void reset(int tabCount) {
+        if (mRenderNodes != null) {
+            mRenderNodes.resize(tabCount);
+            mRenderNodes.invalidateAll();
+        }
+        if (mTabLayouts == null || mTabLayouts.length != tabCount) {
+            mTabLayouts = new Layout[tabCount];
+            return;
+        }
+        for (int i = 0; i < tabCount; i++) {
+            mTabLayouts[i] = null;
+        }
+    }
+
+    /**
+     * 修改tab的个数，保留已经缓存的Layout
+     *
+     * @param tabCount tab的个数
+     */
+    void resize(int tabCount) {
+        if (mRenderNodes != null) {
+            mRenderNodes.resize(tabCount);
+        }
+        if (mTabLayouts == null) {
+            mTabLayouts = new Layout[tabCount];
+        } else if (mTabLayouts.length != tabCount) {
+            mTabLayouts = Arrays.copyOf(mTabLayouts, tabCount);
+        }
+    }
+
+    /**
+     * 在某个位置移除或者插入tab，之后的tab缓存的Layout跟随移动，不需要重新创建
+     *
+     * @param position      移除或者插入的位置
+     * @param removedCount  移除的个数
+     * @param insertedCount 插入的个数
+     */
+    void shift(int position, int removedCount, int insertedCount) {
+        int oldCount = mTabLayouts == null ? 0 : mTabLayouts.length;
+        int newCount = oldCount - removedCount + insertedCount;
+        Layout[] layouts = new Layout[newCount];
+        if (oldCount > 0) {
+            System.arraycopy(mTabLayouts, 0, layouts, 0, position);
+            System.arraycopy(mTabLayouts, position + removedCount, layouts, position + insertedCount,
+                    oldCount - position - removedCount);
+        }
+        mTabLayouts = layouts;
+        if (mRenderNodes != null) {
+            //录制的内容没有跟随移动，之后的tab都重新录制
+            mRenderNodes.resize(newCount);
+            for (int i = position; i < newCount; i++) {
+                mRenderNodes.invalidate(i);
+            }
+        }
+    }
+
+    /**
+     * 清除某个tab缓存的Layout，下次绘制时重新创建
+     *
+     * @param index tab的下标
+     */
+    void invalidate(int index) {
+        mTabLayouts[index] = null;
+        invalidateRenderNode(index);
+    }
+
+    /**
+     * tab的选中状态变化时只需要重新录制，不需要重新创建Layout
+     *
+     * @param index tab的下标
+     */
+    void invalidateRenderNode(int index) {
+        if (mRenderNodes != null) {
+            mRenderNodes.invalidate(index);
+        }
+    }
+
+    /**
+     * 设置每个tab录制好的RenderNode
+     *
+     * @param renderNodes RenderNode缓存，为null时直接绘制
+     */
+    void setRenderNodes(@Nullable TabRenderNodes renderNodes) {
+        mRenderNodes = renderNodes;
+        if (renderNodes != null) {
+            renderNodes.resize(mTabLayouts == null ? 0 : mTabLayouts.length);
+            renderNodes.invalidateAll();
+        }
+    }
+
+    /**
+     * 绘制一个tab的文字
+     *
+     * @param canvas   画布
+     * @param text     tab名称
+     * @param index    tab的下标
+     * @param left     tab的左边位置
+     * @param top      tab的上边位置
+     * @param tabWidth tab的宽度
+     * @param selected 是否选中
+     */
+    void draw(Canvas canvas, CharSequence text, int index, float left, float top, int tabWidth, boolean selected) {
+        if (mRenderNodes != null && canvas.isHardwareAccelerated()) {
+            mRenderNodes.draw(canvas, this, text, index, (int) left, (int) top, tabWidth, mTabHeight, selected);
+            return;
+        }
+        drawText(canvas, text, index, left, top, tabWidth, selected);
+    }
+
+    /**
+     * 直接绘制一个tab的文字
+     *
+     * @param canvas   画布
+     * @param text     tab名称
+     * @param index    tab的下标
+     * @param left     tab的左边位置
+     * @param top      tab的上边位置
+     * @param tabWidth tab的宽度
+     * @param selected 是否选中
+     */
+    void drawText(Canvas canvas, CharSequence text, int index, float left, float top, int tabWidth, boolean selected) {
+        Layout layout = mTabLayouts[index];
+        //宽度变化后需要重新计算省略号和居中
+        if (layout == null || layout.getWidth() != tabWidth) {
+            layout = newLayout(text, tabWidth);
+            mTabLayouts[index] = layout;
+        }
+        //所有的Layout共用一个画笔，绘制前设置颜色即可
+        mTextPaint.setColor(selected ? mSelectColor : mUnSelectColor);
+        canvas.save();
+        //文字垂直居中
+        canvas.translate(left, top + (mTabHeight - layout.getHeight()) / 2f);
+        layout.draw(canvas);
+        canvas.restore();
+    }
+
+    /**
+     * 创建文字Layout，单行并且超出宽度时末尾显示省略号，与TextView的表现一致
+     *
+     * @param text     tab名称
+     * @param tabWidth tab的宽度
+     * @return Layout
+     */
+    private Layout newLayout(CharSequence text, int tabWidth) {
+        if (text == null) {
+            text = "";
+        }
+        //缓存中的宽度没有超出时不需要再测量文字去计算省略号
+        CharSequence label = mWidthCache.measure(text) <= tabWidth ? text
+                : TextUtils.ellipsize(text, mTextPaint, tabWidth, TextUtils.TruncateAt.END);
+        BoringLayout.Metrics metrics = BoringLayout.isBoring(label, mTextPaint);
+        if (metrics != null) {
+            return BoringLayout.make(label, mTextPaint, tabWidth, Layout.Alignment.ALIGN_CENTER,
+                    1.0f, 0f, metrics, true);
+        }
+        return new StaticLayout(label, mTextPaint, tabWidth, Layout.Alignment.ALIGN_CENTER,
+                1.0f, 0f, true);
+    }
+}
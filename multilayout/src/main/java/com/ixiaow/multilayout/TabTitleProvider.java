@@ -0,0 +1,25 @@
+package com.ixiaow.multilayout;
+
+import android.support.annotation.Nullable;
+
+/**
+ * 按需提供tab名称，MultiLayout只在需要显示某个tab时才获取其名称。
+ * 名称需要异步加载时可以先返回null显示占位文字，加载完成后在主线程中调用
+ * {@link MultiLayout#notifyTabTitlesChanged(int, int)}
+ */
+public interface TabTitleProvider {
+
+    /**
+     * @return tab的个数
+     */
+    int getTabCount();
+
+    /**
+     * 获取tab的名称，在主线程中调用，不能耗时
+     *
+     * @param index tab的下标
+     * @return tab的名称，还没有加载完成时返回null
+     */
+    @Nullable
+    CharSequence getTabTitle(int index);
+}
@@ -0,0 +1,80 @@
+package com.ixiaow.multilayout;
+
+import android.support.annotation.Nullable;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+
+/**
+ * tabText复用池，数据变化时移除的tabText放入池中，创建新的tabText时优先从池中获取
+ */
+final class TabViewPool {
+
+    //默认最多缓存的tabText个数
+    static final int DEFAULT_MAX_SIZE = 64;
+
+    //缓存的tabText
+    private final ArrayList<TextView> mScrapViews = new ArrayList<>();
+    //最多缓存的个数
+    private int mMaxSize;
+    //从池中获取成功的次数
+    private int mHitCount;
+    //从池中获取失败的次数
+    private int mMissCount;
+
+    TabViewPool(int maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * 从池中获取一个tabText
+     *
+     * @return tabText，池中没有时返回null
+     */
+    @Nullable
+    TextView acquire() {
+        int size = mScrapViews.size();
+        if (size == 0) {
+            mMissCount++;
+            return null;
+        }
+        mHitCount++;
+        return mScrapViews.remove(size - 1);
+    }
+
+    /**
+     * 将不再使用的tabText放入池中，超出最大个数时直接丢弃
+     *
+     * @param tabText 不再使用的tabText，必须已经从父控件中移除
+     */
+    void release(TextView tabText) {
+        if (mScrapViews.size() < mMaxSize) {
+            tabText.setSelected(false);
+            mScrapViews.add(tabText);
+        }
+    }
+
+    /**
+     * 设置最多缓存的个数，超出的tabText会被丢弃
+     *
+     * @param maxSize 最多缓存的个数
+     */
+    void setMaxSize(int maxSize) {
+        mMaxSize = maxSize;
+        while (mScrapViews.size() > maxSize) {
+            mScrapViews.remove(mScrapViews.size() - 1);
+        }
+    }
+
+    int size() {
+        return mScrapViews.size();
+    }
+
+    int getHitCount() {
+        return mHitCount;
+    }
+
+    int getMissCount() {
+        return mMissCount;
+    }
+}
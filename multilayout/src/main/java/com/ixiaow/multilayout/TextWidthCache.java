@@ -0,0 +1,163 @@
+package com.ixiaow.multilayout;
+
+import android.graphics.Typeface;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
+import android.text.Layout;
+import android.text.Spanned;
+import android.text.TextPaint;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * tab文字宽度缓存，文字大小和字体相同的MultiLayout共用一个缓存，
+ * 重新创建tab时已经测量过的文字不需要再次测量。缓存按个数限制，超出时移除最久未使用的文字。
+ * 带有样式的文字每次都按样式测量，不缓存
+ */
+final class TextWidthCache implements RowPacker.WidthMeasurer {
+
+    //默认最多缓存的文字个数
+    static final int DEFAULT_MAX_SIZE = 512;
+    //每个缓存项除文字以外大约占用的字节数：String、Float以及LinkedHashMap中的Entry
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    //文字大小和字体对应的缓存
+    private static final Map<Key, TextWidthCache> sCaches = new HashMap<>();
+
+    //测量文字使用的画笔，可能在后台线程中使用，使用时需要加锁
+    private final TextPaint mTextPaint;
+    //文字对应的宽度
+    private final LruCache<String, Float> mWidths;
+    //缓存的文字的字符个数之和
+    private int mCharCount;
+
+    private TextWidthCache(float textSize, @Nullable Typeface typeface) {
+        mTextPaint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+        mTextPaint.setTextSize(textSize);
+        mTextPaint.setTypeface(typeface);
+        mWidths = new LruCache<String, Float>(DEFAULT_MAX_SIZE) {
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Float oldValue, Float newValue) {
+                synchronized (TextWidthCache.this) {
+                    mCharCount -= key.length();
+                }
+            }
+        };
+    }
+
+    /**
+     * 获取文字大小和字体对应的缓存，没有时创建
+     *
+     * @param textSize 文字大小，单位px
+     * @param typeface 字体，为null时使用默认字体
+     * @return 文字宽度缓存
+     */
+    static TextWidthCache get(float textSize, @Nullable Typeface typeface) {
+        Key key = new Key(textSize, typeface);
+        synchronized (sCaches) {
+            TextWidthCache cache = sCaches.get(key);
+            if (cache == null) {
+                cache = new TextWidthCache(textSize, typeface);
+                sCaches.put(key, cache);
+            }
+            return cache;
+        }
+    }
+
+    @Override
+    public float measure(int index, CharSequence text) {
+        return measure(text);
+    }
+
+    /**
+     * 获取文字的宽度，没有缓存时测量并缓存
+     *
+     * @param text 文字
+     * @return 文字的宽度
+     */
+    float measure(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+        if (text instanceof Spanned) {
+            //带有样式的文字宽度与样式有关，不能按字符串缓存
+            synchronized (mTextPaint) {
+                return Layout.getDesiredWidth(text, mTextPaint);
+            }
+        }
+        String key = text.toString();
+        Float width = mWidths.get(key);
+        if (width == null) {
+            synchronized (mTextPaint) {
+                width = mTextPaint.measureText(key);
+            }
+            synchronized (this) {
+                mCharCount += key.length();
+            }
+            mWidths.put(key, width);
+        }
+        return width;
+    }
+
+    /**
+     * 设置最多缓存的文字个数
+     *
+     * @param maxSize 最多缓存的文字个数
+     */
+    void setMaxSize(int maxSize) {
+        mWidths.resize(maxSize);
+    }
+
+    int size() {
+        return mWidths.size();
+    }
+
+    /**
+     * @return 缓存命中率，没有查询过时为0
+     */
+    float getHitRate() {
+        int hitCount = mWidths.hitCount();
+        int total = hitCount + mWidths.missCount();
+        return total == 0 ? 0 : (float) hitCount / total;
+    }
+
+    /**
+     * 估算缓存占用的内存大小
+     *
+     * @return 字节数
+     */
+    synchronized long getMemorySize() {
+        return (long) mWidths.size() * ENTRY_OVERHEAD_BYTES + mCharCount * 2L;
+    }
+
+    /**
+     * 缓存的key，文字大小和字体都相同时才能共用
+     */
+    private static final class Key {
+        private final float mTextSize;
+        private final Typeface mTypeface;
+
+        Key(float textSize, Typeface typeface) {
+            mTextSize = textSize;
+            mTypeface = typeface;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return mTextSize == key.mTextSize && mTypeface == key.mTypeface;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Float.floatToIntBits(mTextSize) + System.identityHashCode(mTypeface);
+        }
+    }
+}
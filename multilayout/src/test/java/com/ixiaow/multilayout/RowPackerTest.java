@@ -0,0 +1,182 @@
+package com.ixiaow.multilayout;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * RowPacker换行计算的单元测试
+ */
+public class RowPackerTest {
+
+    private static final float DELTA = 0.001f;
+
+    @Test
+    public void pack_fixedWidths() {
+        RowPacker packer = new RowPacker();
+        float[] widths = filled(7, 50);
+        packer.pack(widths, 7, 160, 0);
+
+        assertEquals(3, packer.getRowCount());
+        assertEquals(0, packer.getRowStart(0));
+        assertEquals(3, packer.getRowStart(1));
+        assertEquals(6, packer.getRowStart(2));
+        assertEquals(7, packer.getRowEnd(2));
+        //每行3个tab的间隔为(160 - 150) / 3，最后一行为(160 - 50) / 1
+        assertEquals(10f / 3, packer.getRowMargin(0), DELTA);
+        assertEquals(110f, packer.getRowMargin(2), DELTA);
+        assertEquals(10f / 3, packer.getMinMargin(), DELTA);
+    }
+
+    @Test
+    public void pack_minSpacing() {
+        RowPacker packer = new RowPacker();
+        float[] widths = filled(4, 50);
+        packer.pack(widths, 4, 160, 10);
+
+        //50 + 10 + 50 + 10 + 50 = 170 > 160，每行只能放两个
+        assertEquals(2, packer.getRowCount());
+        assertEquals(2, packer.getRowStart(1));
+    }
+
+    @Test
+    public void pack_tabWiderThanContainer() {
+        RowPacker packer = new RowPacker();
+        float[] widths = {200, 50, 50};
+        packer.pack(widths, 3, 160, 0);
+
+        //每行至少有一个tab
+        assertEquals(2, packer.getRowCount());
+        assertEquals(0, packer.getRowStart(0));
+        assertEquals(1, packer.getRowStart(1));
+        //超出可用宽度时间隔为0，所有行中最小的间隔也不会为负数
+        assertEquals(0f, packer.getRowMargin(0), DELTA);
+        assertEquals(0f, packer.getMinMargin(), DELTA);
+    }
+
+    @Test
+    public void pack_fromRowKeepsPreviousRows() {
+        RowPacker packer = new RowPacker();
+        float[] widths = filled(7, 50);
+        packer.pack(widths, 7, 160, 0);
+
+        //第5个tab之后变宽，只需要从其所在的行开始重新换行
+        widths = Arrays.copyOf(widths, 9);
+        widths[4] = 100;
+        widths[7] = 50;
+        widths[8] = 50;
+        int row = packer.findRow(4);
+        assertEquals(1, row);
+        packer.pack(widths, 9, 160, 0, row);
+
+        assertEquals(4, packer.getRowCount());
+        assertEquals(0, packer.getRowStart(0));
+        assertEquals(3, packer.getRowStart(1));
+        assertEquals(5, packer.getRowStart(2));
+        assertEquals(8, packer.getRowStart(3));
+        assertEquals(9, packer.getRowEnd(3));
+    }
+
+    @Test
+    public void pack_fromRowRewrapsPreviousRow() {
+        RowPacker packer = new RowPacker();
+        float[] widths = {60, 50};
+        packer.pack(widths, 2, 100, 0);
+        assertEquals(2, packer.getRowCount());
+
+        //一行中第一个tab变窄后可以放到上一行中
+        widths[1] = 40;
+        int row = packer.findRepackRow(1);
+        assertEquals(0, row);
+        packer.pack(widths, 2, 100, 0, row);
+
+        assertEquals(1, packer.getRowCount());
+        assertEquals(2, packer.getRowEnd(0));
+    }
+
+    @Test
+    public void pack_empty() {
+        RowPacker packer = new RowPacker();
+        packer.pack(new float[0], 0, 160, 0);
+        assertEquals(0, packer.getRowCount());
+        assertEquals(0f, packer.getMinMargin(), DELTA);
+    }
+
+    @Test
+    public void findRow() {
+        RowPacker packer = new RowPacker();
+        packer.pack(filled(10, 50), 10, 160, 0);
+        assertEquals(0, packer.findRow(0));
+        assertEquals(0, packer.findRow(2));
+        assertEquals(1, packer.findRow(3));
+        assertEquals(2, packer.findRow(8));
+        assertEquals(3, packer.findRow(9));
+    }
+
+    @Test
+    public void packBalanced_evensOutRows() {
+        RowPacker packer = new RowPacker();
+        packer.setStrategy(RowPacker.STRATEGY_BALANCED);
+        //每行最多3个，贪心换行为3、3、1
+        packer.pack(filled(7, 50), 7, 160, 0);
+
+        //行数不变，每行的tab个数为3、2、2
+        assertEquals(3, packer.getRowCount());
+        assertEquals(0, packer.getRowStart(0));
+        assertEquals(3, packer.getRowStart(1));
+        assertEquals(5, packer.getRowStart(2));
+        assertEquals(7, packer.getRowEnd(2));
+        assertEquals(30f, packer.getRowMargin(1), DELTA);
+        assertEquals(10f / 3, packer.getMinMargin(), DELTA);
+    }
+
+    @Test
+    public void packBalanced_variableWidths() {
+        RowPacker packer = new RowPacker();
+        packer.setStrategy(RowPacker.STRATEGY_BALANCED);
+        float[] widths = {50, 50, 50, 50, 100, 50};
+        //贪心换行为[50 50 50]、[50 100]、[50]，平衡后为[50 50]、[50 50]、[100 50]，平衡时忽略fromRow
+        packer.pack(widths, 6, 160, 0, 1);
+
+        assertEquals(3, packer.getRowCount());
+        assertEquals(2, packer.getRowStart(1));
+        assertEquals(4, packer.getRowStart(2));
+        assertEquals(30f, packer.getRowMargin(0), DELTA);
+        assertEquals(5f, packer.getRowMargin(2), DELTA);
+    }
+
+    @Test
+    public void packBalanced_tabWiderThanContainer() {
+        RowPacker packer = new RowPacker();
+        packer.setStrategy(RowPacker.STRATEGY_BALANCED);
+        float[] widths = {50, 200, 50, 50};
+        packer.pack(widths, 4, 160, 10);
+
+        assertEquals(3, packer.getRowCount());
+        assertEquals(1, packer.getRowStart(1));
+        assertEquals(2, packer.getRowStart(2));
+    }
+
+    @Test
+    public void measure_withMeasurer() {
+        List<String> names = Arrays.asList("全部", "赛事", "杂志eeee3");
+        float[] widths = RowPacker.measure(names, 0, new RowPacker.WidthMeasurer() {
+            @Override
+            public float measure(int index, CharSequence text) {
+                return text.length() * 10;
+            }
+        }, null);
+        assertEquals(3, widths.length);
+        assertEquals(20f, widths[0], DELTA);
+        assertEquals(70f, widths[2], DELTA);
+    }
+
+    private static float[] filled(int count, float width) {
+        float[] widths = new float[count];
+        Arrays.fill(widths, width);
+        return widths;
+    }
+}
@@ -0,0 +1,76 @@
+package com.ixiaow.multilayout;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * TabLayoutSnapshot排版快照读写的单元测试
+ */
+public class TabLayoutSnapshotTest {
+
+    private static final float DELTA = 0.001f;
+
+    @Test
+    public void writeAndRead() throws IOException {
+        float[] widths = {50, 80, 50, 60, 100};
+        RowPacker packer = new RowPacker();
+        packer.setStrategy(RowPacker.STRATEGY_BALANCED);
+        packer.pack(widths, widths.length, 160, 0);
+
+        TabLayoutSnapshot snapshot = TabLayoutSnapshot.read(
+                new ByteArrayInputStream(write(new TabLayoutSnapshot(42L, widths.length, widths, packer))));
+
+        assertNotNull(snapshot);
+        assertEquals(42L, snapshot.key);
+        assertEquals(5, snapshot.tabCount);
+        assertEquals(80f, snapshot.widths[1], DELTA);
+        RowPacker restored = snapshot.rowPacker;
+        assertEquals(RowPacker.STRATEGY_BALANCED, restored.getStrategy());
+        assertEquals(packer.getRowCount(), restored.getRowCount());
+        for (int row = 0; row < packer.getRowCount(); row++) {
+            assertEquals(packer.getRowStart(row), restored.getRowStart(row));
+            assertEquals(packer.getRowMargin(row), restored.getRowMargin(row), DELTA);
+        }
+        assertEquals(packer.getMinMargin(), restored.getMinMargin(), DELTA);
+        assertEquals(restored.getRowCount() - 1, restored.findRow(4));
+    }
+
+    @Test
+    public void read_truncated() throws IOException {
+        float[] widths = {50, 50, 50};
+        RowPacker packer = new RowPacker();
+        packer.pack(widths, widths.length, 160, 0);
+        byte[] data = write(new TabLayoutSnapshot(1L, widths.length, widths, packer));
+
+        assertNull(TabLayoutSnapshot.read(ByteBuffer.wrap(Arrays.copyOf(data, data.length - 2))));
+        //文件头不正确
+        data[0] = 0;
+        assertNull(TabLayoutSnapshot.read(ByteBuffer.wrap(data)));
+    }
+
+    @Test
+    public void hash_text() {
+        long seed = TabLayoutSnapshot.HASH_SEED;
+        //同样的字符拆分成不同的tab时key不同
+        long ab = TabLayoutSnapshot.hash(TabLayoutSnapshot.hash(seed, "全部"), "赛事");
+        long a = TabLayoutSnapshot.hash(TabLayoutSnapshot.hash(seed, "全"), "部赛事");
+        assertNotEquals(ab, a);
+        assertEquals(ab, TabLayoutSnapshot.hash(TabLayoutSnapshot.hash(seed, "全部"), "赛事"));
+    }
+
+    private static byte[] write(TabLayoutSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.writeTo(out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,101 @@
+package com.ixiaow.multilayout;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * TabModel按id更新数据的单元测试
+ */
+public class TabModelTest {
+
+    @Test
+    public void insertAndRemove() {
+        TabModel model = new TabModel(1);
+        model.add(10, "全部");
+        model.add(20, "赛事");
+        model.insert(1, 30, "杂志", 5, 0);
+
+        assertEquals(3, model.size());
+        assertEquals(30, model.getId(1));
+        assertEquals(5, model.getBadge(1));
+        assertEquals(2, model.indexOfId(20));
+
+        assertTrue(model.remove(10));
+        assertFalse(model.remove(10));
+        assertEquals(2, model.size());
+        assertEquals("杂志", model.getTitle(0));
+        assertEquals(-1, model.indexOfId(10));
+    }
+
+    @Test
+    public void move() {
+        TabModel model = newModel(5);
+        //向后移动
+        model.move(1, 3);
+        assertIds(model, 0, 2, 3, 1, 4);
+        //向前移动
+        model.move(4, 0);
+        assertIds(model, 4, 0, 2, 3, 1);
+        assertEquals("tab1", model.getTitle(4));
+    }
+
+    @Test
+    public void notifyChangedRange() {
+        TabModel model = newModel(5);
+        final int[] range = new int[3];
+        model.setObserver(new TabModel.Observer() {
+            @Override
+            public void onTabsChanged(int position, int removedCount, int insertedCount) {
+                range[0] = position;
+                range[1] = removedCount;
+                range[2] = insertedCount;
+            }
+        });
+
+        model.setBadge(2, 3);
+        assertRange(range, 2, 1, 1);
+
+        model.move(3, 1);
+        assertRange(range, 1, 3, 3);
+
+        model.remove(0);
+        assertRange(range, 0, 1, 0);
+
+        //插入时只通知插入的位置，之后的tab不受影响
+        model.insert(0, 10, "tab10", 0, 0);
+        assertRange(range, 0, 0, 1);
+
+        model.clear();
+        assertRange(range, 0, 5, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void insert_duplicateId() {
+        TabModel model = newModel(2);
+        model.add(1, "tab");
+    }
+
+    private static TabModel newModel(int count) {
+        TabModel model = new TabModel();
+        for (int i = 0; i < count; i++) {
+            model.add(i, "tab" + i);
+        }
+        return model;
+    }
+
+    private static void assertRange(int[] range, int position, int removedCount, int insertedCount) {
+        assertEquals(position, range[0]);
+        assertEquals(removedCount, range[1]);
+        assertEquals(insertedCount, range[2]);
+    }
+
+    private static void assertIds(TabModel model, long... ids) {
+        assertEquals(ids.length, model.size());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(ids[i], model.getId(i));
+        }
+    }
+}